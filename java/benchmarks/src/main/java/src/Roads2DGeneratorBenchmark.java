@@ -0,0 +1,312 @@
+/*
+MIT License
+
+Copyright (c) 2021-2025 Evgenii Sopov (mrseakg@gmail.com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+// original source-code: https://github.com/sea5kg/Roads2DGenerator
+
+package src;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// generate() end-to-end, every heavy stage separately and every export.
+// A stage is measured on the map which generate() has right before this stage (prepared outside of measurement).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class Roads2DGeneratorBenchmark {
+
+    @State(Scope.Thread)
+    public static class MapState {
+        @Param({"256"})
+        public int width;
+
+        @Param({"256"})
+        public int height;
+
+        @Param({"0.3", "0.7"})
+        public float density;
+
+        // part of the map area excluded by a preset rectangle in the center
+        @Param({"0.0", "0.25"})
+        public float presetCoverage;
+
+        @Param({"1686154273"})
+        public int seed;
+
+        // LEGACY_SIN, SPLIT_MIX or XOROSHIRO
+        @Param({"LEGACY_SIN"})
+        public String randomMode;
+
+        // RANDOM_RETRY or SAMPLE_WITHOUT_REPLACEMENT
+        @Param({"RANDOM_RETRY"})
+        public String initPointsMode;
+
+        // CELL_BY_CELL or BIT_PARALLEL
+        @Param({"BIT_PARALLEL"})
+        public String cellularMode;
+
+        public Roads2DGenerator generator;
+
+        protected void createGenerator() {
+            generator = new Roads2DGenerator();
+            generator.getConfig()
+                .setWidth(width)
+                .setHeight(height)
+                .setDensity(density)
+                .setSeedInitRandom(seed)
+                .setRandomMode(Roads2DGenerator.Roads2DGeneratorRandomMode.valueOf(randomMode))
+                .setInitPointsMode(Roads2DGenerator.Roads2DGeneratorInitPointsMode.valueOf(initPointsMode))
+                .setCellularMode(Roads2DGenerator.Roads2DGeneratorCellularMode.valueOf(cellularMode))
+            ;
+            if (presetCoverage > 0.0f) {
+                double side = Math.sqrt(presetCoverage);
+                int nPresetWidth = (int)(width * side);
+                int nPresetHeight = (int)(height * side);
+                int x0 = (width - nPresetWidth) / 2;
+                int y0 = (height - nPresetHeight) / 2;
+                generator.getConfig().setPresetExcludes(x0, y0, x0 + nPresetWidth - 1, y0 + nPresetHeight - 1);
+            }
+        }
+    }
+
+    public static class ConfiguredMap extends MapState {
+        @Setup(Level.Trial)
+        public void setup() {
+            createGenerator();
+        }
+    }
+
+    public static class GeneratedMap extends MapState {
+        @Setup(Level.Trial)
+        public void setup() {
+            createGenerator();
+            generator.generate();
+        }
+    }
+
+    // chunks of the map size with the settings of the map
+    public static class ChunkWorld extends MapState {
+        public Roads2DGeneratorChunkProvider provider;
+        public int nNextChunkX;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            createGenerator();
+            provider = new Roads2DGeneratorChunkProvider().setChunkSize(width).setMaxCachedChunks(16);
+            provider.setConfig(generator.getConfig());
+            nNextChunkX = 0;
+        }
+    }
+
+    // the map of the config is already in the memory tier
+    public static class CachedMap extends MapState {
+        public Roads2DGeneratorResultCache cache;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            createGenerator();
+            cache = new Roads2DGeneratorResultCache();
+            cache.generate(generator);
+        }
+    }
+
+    public abstract static class BeforeStage extends MapState {
+        protected abstract Roads2DGenerator.Roads2DGeneratorStage getStage();
+
+        @Setup(Level.Invocation)
+        public void setup() {
+            createGenerator();
+            generator.beginGenerate();
+            generator.runPipelineUntil(getStage());
+        }
+    }
+
+    public static class BeforeRandomInitPoints extends BeforeStage {
+        protected Roads2DGenerator.Roads2DGeneratorStage getStage() {
+            return Roads2DGenerator.Roads2DGeneratorStage.RANDOM_INIT_POINTS;
+        }
+    }
+
+    public static class BeforeMoveDiagonalTails extends BeforeStage {
+        protected Roads2DGenerator.Roads2DGeneratorStage getStage() {
+            return Roads2DGenerator.Roads2DGeneratorStage.MOVE_DIAGONAL_TAILS;
+        }
+    }
+
+    public static class BeforeRemoveAllShortCicles extends BeforeStage {
+        protected Roads2DGenerator.Roads2DGeneratorStage getStage() {
+            return Roads2DGenerator.Roads2DGeneratorStage.REMOVE_ALL_SHORT_CICLES;
+        }
+    }
+
+    public static class BeforeTryConnectDeadlocks extends BeforeStage {
+        protected Roads2DGenerator.Roads2DGeneratorStage getStage() {
+            return Roads2DGenerator.Roads2DGeneratorStage.TRY_CONNECT_DEADLOCKS;
+        }
+    }
+
+    public static class BeforeConnectUnunionRoads extends BeforeStage {
+        protected Roads2DGenerator.Roads2DGeneratorStage getStage() {
+            return Roads2DGenerator.Roads2DGeneratorStage.CONNECT_UNUNION_ROADS;
+        }
+    }
+
+    @Benchmark
+    public boolean generate(ConfiguredMap state) {
+        return state.generator.generate();
+    }
+
+    @Benchmark
+    public boolean randomInitPoints(BeforeRandomInitPoints state) {
+        return state.generator.runStage(Roads2DGenerator.Roads2DGeneratorStage.RANDOM_INIT_POINTS);
+    }
+
+    @Benchmark
+    public boolean moveDiagonalTailsLoop(BeforeMoveDiagonalTails state) {
+        return state.generator.runStage(Roads2DGenerator.Roads2DGeneratorStage.MOVE_DIAGONAL_TAILS);
+    }
+
+    @Benchmark
+    public boolean removeAllShortCiclesLoop(BeforeRemoveAllShortCicles state) {
+        return state.generator.runStage(Roads2DGenerator.Roads2DGeneratorStage.REMOVE_ALL_SHORT_CICLES);
+    }
+
+    @Benchmark
+    public boolean tryConnectDeadlocksLoop(BeforeTryConnectDeadlocks state) {
+        return state.generator.runStage(Roads2DGenerator.Roads2DGeneratorStage.TRY_CONNECT_DEADLOCKS);
+    }
+
+    @Benchmark
+    public boolean connectUnunionRoads(BeforeConnectUnunionRoads state) {
+        return state.generator.runStage(Roads2DGenerator.Roads2DGeneratorStage.CONNECT_UNUNION_ROADS);
+    }
+
+    // 32x32 window in the center, the map stays valid after every call
+    @Benchmark
+    public boolean regenerateRegion(GeneratedMap state) {
+        int x0 = state.width / 2 - 16;
+        int y0 = state.height / 2 - 16;
+        return state.generator.regenerateRegion(x0, y0, x0 + 31, y0 + 31, state.seed);
+    }
+
+    // a chunk which was not requested before on every call
+    @Benchmark
+    public Roads2DGeneratorChunkProvider.Roads2DGeneratorChunk chunkProviderGetChunk(ChunkWorld state) {
+        return state.provider.getChunk(state.nNextChunkX++, 0);
+    }
+
+    // compare with generate()
+    @Benchmark
+    public boolean resultCacheHit(CachedMap state) {
+        return state.cache.generate(state.generator);
+    }
+
+    @Benchmark
+    public List<Roads2DGenerator.Roads2DGeneratorConnectedComponent> findConnectedComponents(GeneratedMap state) {
+        return state.generator.findConnectedComponents();
+    }
+
+    @Benchmark
+    public Roads2DGenerator.Roads2DGeneratorGraph exportLikeGraph(GeneratedMap state) {
+        return state.generator.exportLikeGraph();
+    }
+
+    @Benchmark
+    public Roads2DGenerator.Roads2DGeneratorIndexedGraph exportLikeIndexedGraph(GeneratedMap state) {
+        return state.generator.exportLikeIndexedGraph();
+    }
+
+    @Benchmark
+    public Roads2DGenerator.Roads2DGeneratorRoadNetwork exportLikeRoadNetwork(GeneratedMap state) {
+        return state.generator.exportLikeRoadNetwork(false);
+    }
+
+    // points and tangents, without writing
+    @Benchmark
+    public Roads2DGeneratorUnigineSplineGraph unigineSplineGraph(GeneratedMap state) {
+        return new Roads2DGeneratorUnigineSplineGraph(state.generator);
+    }
+
+    @Benchmark
+    public List<List<String>> exportLikeTable(GeneratedMap state) {
+        return state.generator.exportLikeTable();
+    }
+
+    @Benchmark
+    public byte[] exportLikeTileCodes(GeneratedMap state) {
+        return state.generator.exportLikeTileCodes();
+    }
+
+    @Benchmark
+    public String exportLikeJsonPixelMap(GeneratedMap state) {
+        return state.generator.exportLikeJsonPixelMap();
+    }
+
+    @Benchmark
+    public long exportLikeJsonPixelMapStream(GeneratedMap state) throws IOException {
+        CountingChannel channel = new CountingChannel();
+        state.generator.exportLikeJsonPixelMap(channel);
+        return channel.nBytes;
+    }
+
+    // drops the bytes, so only the encoding is measured
+    public static class CountingChannel implements WritableByteChannel {
+        long nBytes = 0;
+
+        @Override
+        public int write(ByteBuffer src) {
+            int nSize = src.remaining();
+            src.position(src.limit());
+            nBytes += nSize;
+            return nSize;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
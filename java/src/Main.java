@@ -52,5 +52,11 @@ public class Main {
         }
         // std::cout << "Init Seed: " << road2gen.getConfig().getSeedInitRandom() << std::endl;
         road2gen.printMap();
+
+        // spline graph for unigine example
+        // Roads2DGeneratorUnigineSplineGraph unigineSpl = new Roads2DGeneratorUnigineSplineGraph(road2gen);
+        // unigineSpl.modifyScale(10);
+        // unigineSpl.modifyRandom(10.0f, 10.0f, 0.5f);
+        // unigineSpl.exportToSPLFile("road2dgen_example_spline_graph_for_unigine.spl");
     }
 }
\ No newline at end of file
@@ -27,12 +27,29 @@ SOFTWARE.
 package src;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
-import java.io.FileWriter;
+import java.util.Set;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.zip.GZIPOutputStream;
 
 public class Roads2DGenerator {
 
@@ -48,10 +65,12 @@ public class Roads2DGenerator {
 
         public void doIncrement() {
             m_nCurrentLoop++;
+            m_nCountLoopIterations++;
         }
 
+        // also true when generate() has to stop (deadline or cancellation)
         public boolean isOverMax() {
-            return m_nCurrentLoop >= m_nMaxLoop;
+            return m_nCurrentLoop >= m_nMaxLoop || isStopRequested();
         }
 
         public int getLoopNumber() {
@@ -60,7 +79,16 @@ public class Roads2DGenerator {
     }
 
     // Roads2DGeneratorPseudoRandom
-    public class Roads2DGeneratorPseudoRandom {
+    // Roads2DGeneratorRandom - source of random numbers of the generator, see Roads2DGeneratorRandomMode
+    public interface Roads2DGeneratorRandom {
+        void setInitSeed(int nSeed);
+        int getInitSeed();
+        // never negative
+        int getNextRandom();
+    }
+
+    // Roads2DGeneratorPseudoRandom - legacy sin-based generator, the same numbers as the c++ version
+    public class Roads2DGeneratorPseudoRandom implements Roads2DGeneratorRandom {
         private int m_nSeed;
         private int m_nInitSeed;
 
@@ -69,20 +97,24 @@ public class Roads2DGenerator {
             m_nInitSeed = 0;
         }
 
+        @Override
         public void setInitSeed(int nSeed) {
             this.m_nInitSeed = nSeed;
             this.m_nSeed = nSeed;
         }
 
+        @Override
         public int getNextRandom() {
             // m_nSeed = std::sin(m_nSeed + 1) * float(m_nSeed + 1103515245) + 123;
+            // StrictMath (fdlibm) gives the same sin on every JVM, Math.sin may differ in the last bit
             float num = m_nSeed + 1103515245;
-            m_nSeed = (int)((Math.sin(m_nSeed + 1) * num + 123.0f));
+            m_nSeed = (int)((StrictMath.sin(m_nSeed + 1) * num + 123.0f));
             m_nSeed = m_nSeed & 0x0FFFFFFF;
             return m_nSeed;
             // return m_nSeed;
         }
 
+        @Override
         public int getInitSeed() {
             return m_nInitSeed;
         }
@@ -92,6 +124,166 @@ public class Roads2DGenerator {
         }
     }
 
+    // Roads2DGeneratorSplitMixRandom - SplitMix64 (like java.util.SplittableRandom, but the sequence is fixed here),
+    // different streams use different gammas, split() gives an independent generator
+    public class Roads2DGeneratorSplitMixRandom implements Roads2DGeneratorRandom {
+        private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+        private long m_nState;
+        private long m_nGamma;
+        private int m_nInitSeed;
+
+        public Roads2DGeneratorSplitMixRandom() {
+            m_nGamma = GOLDEN_GAMMA;
+            setInitSeed(0);
+        }
+
+        @Override
+        public void setInitSeed(int nSeed) {
+            m_nInitSeed = nSeed;
+            m_nState = mix64(nSeed);
+        }
+
+        @Override
+        public int getInitSeed() {
+            return m_nInitSeed;
+        }
+
+        // stream 0 is the plain SplitMix64
+        public void setStream(int nStream) {
+            m_nGamma = nStream == 0 ? GOLDEN_GAMMA : mixGamma(GOLDEN_GAMMA * (nStream + 1L));
+        }
+
+        public long nextLong() {
+            m_nState += m_nGamma;
+            return mix64(m_nState);
+        }
+
+        @Override
+        public int getNextRandom() {
+            return (int)(nextLong() >>> 33);
+        }
+
+        // new generator with its own state and gamma, this one moves on by two numbers
+        public Roads2DGeneratorSplitMixRandom split() {
+            Roads2DGeneratorSplitMixRandom other = new Roads2DGeneratorSplitMixRandom();
+            other.m_nInitSeed = m_nInitSeed;
+            other.m_nState = nextLong();
+            other.m_nGamma = mixGamma(nextLong());
+            return other;
+        }
+
+        // odd gamma with enough bit transitions, as in java.util.SplittableRandom
+        private long mixGamma(long z) {
+            z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+            z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+            z = (z ^ (z >>> 33)) | 1L;
+            return (Long.bitCount(z ^ (z >>> 1)) < 24) ? z ^ 0xAAAAAAAAAAAAAAAAL : z;
+        }
+    }
+
+    // splitmix64 finalizer, the same for any JVM
+    public static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // seeds derived from one seed (candidates of generateAny(), attempts of regenerateRegion()):
+    // index 0 is the seed itself, the rest are spread by mix64()
+    public static int deriveSeed(int nBaseSeed, int nIndex) {
+        if (nIndex == 0) {
+            return nBaseSeed;
+        }
+        return (int)mix64(((long)nBaseSeed << 32) ^ (nIndex * 0x9E3779B97F4A7C15L));
+    }
+
+    // seeds of cells of a world grid (tiles, chunks) and their attempts
+    public static int deriveSeed(int nWorldSeed, int nCellX, int nCellY, int nIndex) {
+        return (int)mix64(((long)nWorldSeed << 32)
+            ^ (nCellX * 0x9E3779B97F4A7C15L)
+            ^ (nCellY * 0xC2B2AE3D27D4EB4FL)
+            ^ (nIndex * 0x165667B19E3779F9L));
+    }
+
+    // Roads2DGeneratorXoroshiroRandom - xoroshiro128** seeded by SplitMix64,
+    // jump() moves 2^64 numbers ahead, so every stream is a separate part of one long sequence
+    public class Roads2DGeneratorXoroshiroRandom implements Roads2DGeneratorRandom {
+        private static final long JUMP_0 = 0xDF900294D8F554A5L;
+        private static final long JUMP_1 = 0x170865DF4B3201FCL;
+        private long m_nState0;
+        private long m_nState1;
+        private int m_nInitSeed;
+
+        public Roads2DGeneratorXoroshiroRandom() {
+            setInitSeed(0);
+        }
+
+        @Override
+        public void setInitSeed(int nSeed) {
+            m_nInitSeed = nSeed;
+            Roads2DGeneratorSplitMixRandom seeder = new Roads2DGeneratorSplitMixRandom();
+            seeder.setInitSeed(nSeed);
+            m_nState0 = seeder.nextLong();
+            m_nState1 = seeder.nextLong();
+            if ((m_nState0 | m_nState1) == 0) {
+                m_nState0 = 1;
+            }
+        }
+
+        @Override
+        public int getInitSeed() {
+            return m_nInitSeed;
+        }
+
+        // stream n starts after n jumps, it takes n * 128 steps, fine for streams of threads or tiles
+        public void setStream(int nStream) {
+            for (int i = 0; i < nStream; i++) {
+                jump();
+            }
+        }
+
+        public long nextLong() {
+            long s0 = m_nState0;
+            long s1 = m_nState1;
+            long result = Long.rotateLeft(s0 * 5, 7) * 9;
+            s1 ^= s0;
+            m_nState0 = Long.rotateLeft(s0, 24) ^ s1 ^ (s1 << 16);
+            m_nState1 = Long.rotateLeft(s1, 37);
+            return result;
+        }
+
+        @Override
+        public int getNextRandom() {
+            return (int)(nextLong() >>> 33);
+        }
+
+        public void jump() {
+            long s0 = 0;
+            long s1 = 0;
+            for (long nJump : new long[] { JUMP_0, JUMP_1 }) {
+                for (int b = 0; b < 64; b++) {
+                    if ((nJump & (1L << b)) != 0) {
+                        s0 ^= m_nState0;
+                        s1 ^= m_nState1;
+                    }
+                    nextLong();
+                }
+            }
+            m_nState0 = s0;
+            m_nState1 = s1;
+        }
+
+        // generator at the current position, this one jumps ahead, so the sequences do not overlap
+        public Roads2DGeneratorXoroshiroRandom split() {
+            Roads2DGeneratorXoroshiroRandom other = new Roads2DGeneratorXoroshiroRandom();
+            other.m_nInitSeed = m_nInitSeed;
+            other.m_nState0 = m_nState0;
+            other.m_nState1 = m_nState1;
+            jump();
+            return other;
+        }
+    }
+
     // Roads2DGeneratorPoint
     public class Roads2DGeneratorPoint {
         private int m_nX;
@@ -139,33 +331,43 @@ public class Roads2DGenerator {
     public class Roads2DGeneratorGraph {
         private final List<Roads2DGeneratorPoint> m_vPoints;
         private final List<Roads2DGeneratorPair<Integer, Integer>> m_vConnections;
+        private final Map<Roads2DGeneratorPoint, Integer> m_mapPointIndexes;
+        private final Set<Long> m_setConnections;
 
         public Roads2DGeneratorGraph() {
             this.m_vPoints = new ArrayList<>();
             this.m_vConnections = new ArrayList<>();
+            this.m_mapPointIndexes = new HashMap<>();
+            this.m_setConnections = new HashSet<>();
         }
 
         public int findOrAddPointGetIndex(Roads2DGeneratorPoint point) {
-            for (int i = 0; i < m_vPoints.size(); i++) {
-                if (m_vPoints.get(i).equals(point)) {
-                    return i;
-                }
+            Integer index = m_mapPointIndexes.get(point);
+            if (index != null) {
+                return index;
             }
             m_vPoints.add(point);
+            m_mapPointIndexes.put(point, m_vPoints.size() - 1);
             return m_vPoints.size() - 1;
         }
 
         public void addConnection(Integer index1, Integer index2) {
-            Integer _min = Math.min(index1, index2);
-            Integer _max = Math.max(index1, index2);
-            for (Roads2DGeneratorPair connection : m_vConnections) {
-                if (connection.first == _min && connection.second == _max) {
-                    return;
-                }
+            int _min = Math.min(index1, index2);
+            int _max = Math.max(index1, index2);
+            if (!m_setConnections.add(((long)_min << 32) | _max)) {
+                return;
             }
             m_vConnections.add(new Roads2DGeneratorPair<>(_min, _max));
         }
 
+        public int getPointsCount() {
+            return m_vPoints.size();
+        }
+
+        public int getConnectionsCount() {
+            return m_vConnections.size();
+        }
+
         public List<Roads2DGeneratorPoint> getPoints() {
             return new ArrayList<>(m_vPoints); // return copy
         }
@@ -175,99 +377,725 @@ public class Roads2DGenerator {
         }
     }
 
-    // Roads2DGeneratorConnectedComponent
+    // Roads2DGeneratorEdgeVisitor - callback for iterating edges without copies
+    public interface Roads2DGeneratorEdgeVisitor {
+        void visit(int nFrom, int nTo);
+    }
+
+    // Roads2DGeneratorIndexedGraph - road cells as vertices, 4-neighbour edges in compressed sparse row arrays
+    // vertex id is the number of road cells before (x, y) in row-major order (y, then x),
+    // so it is computed from coordinates by popcount over the packed rows, no search and no hashing
+    public class Roads2DGeneratorIndexedGraph {
+        private final int m_nWidth;
+        private final int m_nHeight;
+        private final int m_nWordsPerRow;
+        private final long[] m_vWords; // snapshot of the pixel map
+        private final int[] m_vWordRanks; // vertex id of the first road cell in each word
+        private final int[] m_vX;
+        private final int[] m_vY;
+        private final int[] m_vOffsets; // neighbours of v are m_vAdjacency[m_vOffsets[v] .. m_vOffsets[v + 1])
+        private final int[] m_vAdjacency;
+
+        public Roads2DGeneratorIndexedGraph(Roads2DGeneratorBitGrid grid) {
+            m_nWidth = grid.getWidth();
+            m_nHeight = grid.getHeight();
+            m_nWordsPerRow = grid.getWordsPerRow();
+            m_vWords = new long[m_nWordsPerRow * m_nHeight];
+            m_vWordRanks = new int[m_vWords.length];
+
+            // ranks and edge count by words: horizontal pairs inside of a row, vertical pairs with the next row
+            int nVertices = 0;
+            long nEdges = 0;
+            for (int y = 0; y < m_nHeight; y++) {
+                for (int w = 0; w < m_nWordsPerRow; w++) {
+                    int idx = y * m_nWordsPerRow + w;
+                    long word = grid.getWord(w, y);
+                    m_vWords[idx] = word;
+                    m_vWordRanks[idx] = nVertices;
+                    nVertices += Long.bitCount(word);
+                    long next = w + 1 < m_nWordsPerRow ? grid.getWord(w + 1, y) : 0L;
+                    nEdges += Long.bitCount(word & ((word >>> 1) | (next << 63)));
+                    if (y + 1 < m_nHeight) {
+                        nEdges += Long.bitCount(word & grid.getWord(w, y + 1));
+                    }
+                }
+            }
+
+            m_vX = new int[nVertices];
+            m_vY = new int[nVertices];
+            m_vOffsets = new int[nVertices + 1];
+            m_vAdjacency = new int[(int)(nEdges * 2)];
+
+            // single pass over road cells, neighbours are written in ascending id order: up, left, right, down
+            int v = 0;
+            int nPos = 0;
+            for (int y = 0; y < m_nHeight; y++) {
+                for (int w = 0; w < m_nWordsPerRow; w++) {
+                    long word = m_vWords[y * m_nWordsPerRow + w];
+                    while (word != 0) {
+                        int x = (w << 6) + Long.numberOfTrailingZeros(word);
+                        word &= word - 1;
+                        m_vX[v] = x;
+                        m_vY[v] = y;
+                        m_vOffsets[v] = nPos;
+                        if (y > 0 && isRoad(x, y - 1)) {
+                            m_vAdjacency[nPos++] = getVertexIdUnchecked(x, y - 1);
+                        }
+                        if (x > 0 && isRoad(x - 1, y)) {
+                            m_vAdjacency[nPos++] = v - 1;
+                        }
+                        if (x + 1 < m_nWidth && isRoad(x + 1, y)) {
+                            m_vAdjacency[nPos++] = v + 1;
+                        }
+                        if (y + 1 < m_nHeight && isRoad(x, y + 1)) {
+                            m_vAdjacency[nPos++] = getVertexIdUnchecked(x, y + 1);
+                        }
+                        v++;
+                    }
+                }
+            }
+            m_vOffsets[nVertices] = nPos;
+        }
+
+        public int getWidth() {
+            return m_nWidth;
+        }
+
+        public int getHeight() {
+            return m_nHeight;
+        }
+
+        public int getVertexCount() {
+            return m_vX.length;
+        }
+
+        public int getEdgeCount() {
+            return m_vAdjacency.length / 2;
+        }
+
+        // -1 if there is no road in the cell
+        public int getVertexId(int x, int y) {
+            if (x < 0 || x >= m_nWidth || y < 0 || y >= m_nHeight || !isRoad(x, y)) {
+                return -1;
+            }
+            return getVertexIdUnchecked(x, y);
+        }
+
+        public int getVertexX(int nVertex) {
+            return m_vX[nVertex];
+        }
+
+        public int getVertexY(int nVertex) {
+            return m_vY[nVertex];
+        }
+
+        public int getDegree(int nVertex) {
+            return m_vOffsets[nVertex + 1] - m_vOffsets[nVertex];
+        }
+
+        public int getNeighbour(int nVertex, int i) {
+            return m_vAdjacency[m_vOffsets[nVertex] + i];
+        }
+
+        // every undirected edge once, nFrom < nTo, in ascending order of nFrom
+        public void forEachEdge(Roads2DGeneratorEdgeVisitor visitor) {
+            for (int v = 0; v < m_vX.length; v++) {
+                for (int i = m_vOffsets[v]; i < m_vOffsets[v + 1]; i++) {
+                    if (m_vAdjacency[i] > v) {
+                        visitor.visit(v, m_vAdjacency[i]);
+                    }
+                }
+            }
+        }
+
+        public void forEachNeighbour(int nVertex, Roads2DGeneratorEdgeVisitor visitor) {
+            for (int i = m_vOffsets[nVertex]; i < m_vOffsets[nVertex + 1]; i++) {
+                visitor.visit(nVertex, m_vAdjacency[i]);
+            }
+        }
+
+        // internal arrays, not a copy - do not modify
+        public int[] getAdjacencyOffsets() {
+            return m_vOffsets;
+        }
+
+        public int[] getAdjacency() {
+            return m_vAdjacency;
+        }
+
+        private boolean isRoad(int x, int y) {
+            return ((m_vWords[y * m_nWordsPerRow + (x >>> 6)] >>> x) & 1L) != 0;
+        }
+
+        private int getVertexIdUnchecked(int x, int y) {
+            int idx = y * m_nWordsPerRow + (x >>> 6);
+            return m_vWordRanks[idx] + Long.bitCount(m_vWords[idx] & ((1L << x) - 1));
+        }
+    }
+
+    // Roads2DGeneratorRoadNetwork - topological graph of the roads: nodes are junctions and dead ends (cells with
+    // a count of road neighbours other than 2) and optionally corners, an edge is a run of other cells between two
+    // nodes with its length in steps and the path compressed to the cells where it turns (ends included).
+    // A closed ring without nodes gets one node in its first cell (row-major), so every road cell is covered.
+    // Nodes are found by masks over the packed rows, every cell is walked once.
+    public class Roads2DGeneratorRoadNetwork {
+        private final int m_nWidth;
+        private final int m_nHeight;
+        private final int m_nWordsPerRow;
+        private final long[] m_vNodeWords;
+        private final int[] m_vWordRanks; // node id of the first node in each word
+        private final int m_nMaskNodes; // nodes of rings are after them
+        private int m_nNodes;
+        private int[] m_vNodeX;
+        private int[] m_vNodeY;
+        private int m_nEdges;
+        private int[] m_vEdgeFrom;
+        private int[] m_vEdgeTo;
+        private int[] m_vEdgeLength;
+        private int[] m_vPathOffsets; // path of e is m_vPathX/Y[m_vPathOffsets[e] .. m_vPathOffsets[e + 1])
+        private int m_nPathPoints;
+        private int[] m_vPathX;
+        private int[] m_vPathY;
+        private final int[] m_vOffsets; // edges of node n are m_vNodeEdges[m_vOffsets[n] .. m_vOffsets[n + 1])
+        private final int[] m_vNodeEdges;
+
+        public Roads2DGeneratorRoadNetwork(Roads2DGeneratorBitGrid grid, boolean bCorners) {
+            m_nWidth = grid.getWidth();
+            m_nHeight = grid.getHeight();
+            m_nWordsPerRow = grid.getWordsPerRow();
+            m_vNodeWords = new long[m_nWordsPerRow * m_nHeight];
+            m_vWordRanks = new int[m_vNodeWords.length];
+
+            // nodes and the count of their sides with roads (every edge takes two of them)
+            long nNodeSides = 0;
+            for (int y = 0; y < m_nHeight; y++) {
+                for (int w = 0; w < m_nWordsPerRow; w++) {
+                    long word = grid.getWord(w, y);
+                    long prev = w > 0 ? grid.getWord(w - 1, y) : 0L;
+                    long next = w + 1 < m_nWordsPerRow ? grid.getWord(w + 1, y) : 0L;
+                    long left = (word << 1) | (prev >>> 63);
+                    long right = (word >>> 1) | (next << 63);
+                    long up = y > 0 ? grid.getWord(w, y - 1) : 0L;
+                    long down = y + 1 < m_nHeight ? grid.getWord(w, y + 1) : 0L;
+                    long straight = (left & right & ~up & ~down) | (up & down & ~left & ~right);
+                    long corner = ((left ^ right) & (up ^ down));
+                    long nodes = word & ~straight & (bCorners ? -1L : ~corner);
+                    int idx = y * m_nWordsPerRow + w;
+                    m_vNodeWords[idx] = nodes;
+                    m_vWordRanks[idx] = m_nNodes;
+                    m_nNodes += Long.bitCount(nodes);
+                    nNodeSides += Long.bitCount(nodes & left) + Long.bitCount(nodes & right)
+                        + Long.bitCount(nodes & up) + Long.bitCount(nodes & down);
+                }
+            }
+            m_nMaskNodes = m_nNodes;
+            m_vNodeX = new int[m_nNodes];
+            m_vNodeY = new int[m_nNodes];
+            int nEdgesCapacity = (int)(nNodeSides / 2) + 1;
+            m_vEdgeFrom = new int[nEdgesCapacity];
+            m_vEdgeTo = new int[nEdgesCapacity];
+            m_vEdgeLength = new int[nEdgesCapacity];
+            m_vPathOffsets = new int[nEdgesCapacity + 1];
+            m_nPathPoints = 0;
+            m_vPathX = new int[nEdgesCapacity * 2];
+            m_vPathY = new int[nEdgesCapacity * 2];
+
+            // edges from every side of every node which is not taken yet by an edge from the other end
+            byte[] vTakenSides = new byte[m_nNodes];
+            Roads2DGeneratorBitGrid visited = new Roads2DGeneratorBitGrid(m_nWidth, m_nHeight);
+            int nNode = 0;
+            for (int y = 0; y < m_nHeight; y++) {
+                for (int w = 0; w < m_nWordsPerRow; w++) {
+                    long nodes = m_vNodeWords[y * m_nWordsPerRow + w];
+                    while (nodes != 0) {
+                        int x = (w << 6) + Long.numberOfTrailingZeros(nodes);
+                        nodes &= nodes - 1;
+                        m_vNodeX[nNode] = x;
+                        m_vNodeY[nNode] = y;
+                        for (int nDir = 0; nDir < 4; nDir++) {
+                            if ((vTakenSides[nNode] & (1 << nDir)) == 0 && isRoad(grid, x + DIRECTION_X[nDir], y + DIRECTION_Y[nDir])) {
+                                vTakenSides[nNode] |= (byte)(1 << nDir);
+                                walkEdge(grid, visited, vTakenSides, nNode, nDir);
+                            }
+                        }
+                        nNode++;
+                    }
+                }
+            }
+
+            // cells left are rings without nodes
+            for (int y = 0; y < m_nHeight; y++) {
+                for (int w = 0; w < m_nWordsPerRow; w++) {
+                    long rest = grid.getWord(w, y) & ~m_vNodeWords[y * m_nWordsPerRow + w] & ~visited.getWord(w, y);
+                    while (rest != 0) {
+                        int x = (w << 6) + Long.numberOfTrailingZeros(rest);
+                        rest &= rest - 1;
+                        addNode(x, y);
+                        int nDir = 0;
+                        while (!isRoad(grid, x + DIRECTION_X[nDir], y + DIRECTION_Y[nDir])) {
+                            nDir++;
+                        }
+                        visited.set(x, y, true);
+                        walkEdge(grid, visited, null, m_nNodes - 1, nDir);
+                        rest &= ~visited.getWord(w, y);
+                    }
+                }
+            }
+
+            // edges of every node, a loop is listed twice
+            m_vOffsets = new int[m_nNodes + 1];
+            for (int e = 0; e < m_nEdges; e++) {
+                m_vOffsets[m_vEdgeFrom[e] + 1]++;
+                m_vOffsets[m_vEdgeTo[e] + 1]++;
+            }
+            for (int n = 0; n < m_nNodes; n++) {
+                m_vOffsets[n + 1] += m_vOffsets[n];
+            }
+            m_vNodeEdges = new int[m_nEdges * 2];
+            int[] vFill = Arrays.copyOf(m_vOffsets, m_nNodes);
+            for (int e = 0; e < m_nEdges; e++) {
+                m_vNodeEdges[vFill[m_vEdgeFrom[e]]++] = e;
+                m_vNodeEdges[vFill[m_vEdgeTo[e]]++] = e;
+            }
+        }
+
+        public int getWidth() {
+            return m_nWidth;
+        }
+
+        public int getHeight() {
+            return m_nHeight;
+        }
+
+        public int getNodeCount() {
+            return m_nNodes;
+        }
+
+        public int getEdgeCount() {
+            return m_nEdges;
+        }
+
+        // -1 if there is no node in the cell
+        public int getNodeId(int x, int y) {
+            if (x < 0 || x >= m_nWidth || y < 0 || y >= m_nHeight) {
+                return -1;
+            }
+            int idx = y * m_nWordsPerRow + (x >>> 6);
+            if (((m_vNodeWords[idx] >>> x) & 1L) != 0) {
+                return m_vWordRanks[idx] + Long.bitCount(m_vNodeWords[idx] & ((1L << x) - 1));
+            }
+            for (int n = m_nMaskNodes; n < m_nNodes; n++) {
+                if (m_vNodeX[n] == x && m_vNodeY[n] == y) {
+                    return n;
+                }
+            }
+            return -1;
+        }
+
+        // node in a cell of a ring without junctions and dead ends
+        public boolean isRingNode(int nNode) {
+            return nNode >= m_nMaskNodes;
+        }
+
+        public int getNodeX(int nNode) {
+            return m_vNodeX[nNode];
+        }
+
+        public int getNodeY(int nNode) {
+            return m_vNodeY[nNode];
+        }
+
+        public int getNodeDegree(int nNode) {
+            return m_vOffsets[nNode + 1] - m_vOffsets[nNode];
+        }
+
+        public int getNodeEdge(int nNode, int i) {
+            return m_vNodeEdges[m_vOffsets[nNode] + i];
+        }
+
+        public int getEdgeFrom(int nEdge) {
+            return m_vEdgeFrom[nEdge];
+        }
+
+        public int getEdgeTo(int nEdge) {
+            return m_vEdgeTo[nEdge];
+        }
+
+        // steps between neighbour cells from one end to the other
+        public int getEdgeLength(int nEdge) {
+            return m_vEdgeLength[nEdge];
+        }
+
+        // ends and turns of the edge, from getEdgeFrom() to getEdgeTo(); cells between two path points are a straight line
+        public int getEdgePathPointCount(int nEdge) {
+            return m_vPathOffsets[nEdge + 1] - m_vPathOffsets[nEdge];
+        }
+
+        public int getEdgePathX(int nEdge, int i) {
+            return m_vPathX[m_vPathOffsets[nEdge] + i];
+        }
+
+        public int getEdgePathY(int nEdge, int i) {
+            return m_vPathY[m_vPathOffsets[nEdge] + i];
+        }
+
+        // internal arrays, not a copy - do not modify
+        public int[] getNodeEdgeOffsets() {
+            return m_vOffsets;
+        }
+
+        public int[] getNodeEdges() {
+            return m_vNodeEdges;
+        }
+
+        private boolean isRoad(Roads2DGeneratorBitGrid grid, int x, int y) {
+            return x >= 0 && x < m_nWidth && y >= 0 && y < m_nHeight && grid.get(x, y);
+        }
+
+        private boolean isNode(int x, int y) {
+            return ((m_vNodeWords[y * m_nWordsPerRow + (x >>> 6)] >>> x) & 1L) != 0;
+        }
+
+        // vTakenSides - null for a ring: it ends in the start cell, which is not in the node mask
+        private void walkEdge(Roads2DGeneratorBitGrid grid, Roads2DGeneratorBitGrid visited, byte[] vTakenSides, int nFrom, int nDir) {
+            int x0 = m_vNodeX[nFrom];
+            int y0 = m_vNodeY[nFrom];
+            int nPathStart = m_nPathPoints;
+            addPathPoint(x0, y0);
+            int x = x0 + DIRECTION_X[nDir];
+            int y = y0 + DIRECTION_Y[nDir];
+            int nLength = 1;
+            while (vTakenSides != null ? !isNode(x, y) : (x != x0 || y != y0)) {
+                visited.set(x, y, true);
+                // the other road neighbour, cells between nodes have two of them
+                int nNext = 0;
+                while (nNext == 3 - nDir || !isRoad(grid, x + DIRECTION_X[nNext], y + DIRECTION_Y[nNext])) {
+                    nNext++;
+                }
+                if (nNext != nDir) {
+                    addPathPoint(x, y);
+                    nDir = nNext;
+                }
+                x += DIRECTION_X[nDir];
+                y += DIRECTION_Y[nDir];
+                nLength++;
+            }
+            addPathPoint(x, y);
+            int nTo = vTakenSides != null ? getNodeId(x, y) : nFrom;
+            if (vTakenSides != null) {
+                // the start side is taken by the caller loop, the end side is the one we came in
+                vTakenSides[nTo] |= (byte)(1 << (3 - nDir));
+            }
+            if (m_nEdges == m_vEdgeFrom.length) {
+                int nCapacity = m_nEdges * 2 + 1;
+                m_vEdgeFrom = Arrays.copyOf(m_vEdgeFrom, nCapacity);
+                m_vEdgeTo = Arrays.copyOf(m_vEdgeTo, nCapacity);
+                m_vEdgeLength = Arrays.copyOf(m_vEdgeLength, nCapacity);
+                m_vPathOffsets = Arrays.copyOf(m_vPathOffsets, nCapacity + 1);
+            }
+            m_vEdgeFrom[m_nEdges] = nFrom;
+            m_vEdgeTo[m_nEdges] = nTo;
+            m_vEdgeLength[m_nEdges] = nLength;
+            m_vPathOffsets[m_nEdges] = nPathStart;
+            m_nEdges++;
+            m_vPathOffsets[m_nEdges] = m_nPathPoints;
+        }
+
+        private void addPathPoint(int x, int y) {
+            if (m_nPathPoints == m_vPathX.length) {
+                m_vPathX = Arrays.copyOf(m_vPathX, m_nPathPoints * 2 + 2);
+                m_vPathY = Arrays.copyOf(m_vPathY, m_nPathPoints * 2 + 2);
+            }
+            m_vPathX[m_nPathPoints] = x;
+            m_vPathY[m_nPathPoints] = y;
+            m_nPathPoints++;
+        }
+
+        private void addNode(int x, int y) {
+            if (m_nNodes == m_vNodeX.length) {
+                m_vNodeX = Arrays.copyOf(m_vNodeX, m_nNodes * 2 + 1);
+                m_vNodeY = Arrays.copyOf(m_vNodeY, m_nNodes * 2 + 1);
+            }
+            m_vNodeX[m_nNodes] = x;
+            m_vNodeY[m_nNodes] = y;
+            m_nNodes++;
+        }
+    }
+
+    // Roads2DGeneratorConnectedComponent - view of one component of Roads2DGeneratorConnectedComponents
     public class Roads2DGeneratorConnectedComponent {
-        private final List<Roads2DGeneratorPoint> m_vPoints;
+        private final Roads2DGeneratorConnectedComponents m_components;
+        private final int m_nCell; // any cell of the component, root is resolved on each call
 
-        public Roads2DGeneratorConnectedComponent() {
-            this.m_vPoints = new ArrayList<>();
+        public Roads2DGeneratorConnectedComponent(Roads2DGeneratorConnectedComponents components, int nCell) {
+            this.m_components = components;
+            this.m_nCell = nCell;
         }
 
         public boolean hasPoint(Roads2DGeneratorPoint point) {
-            return m_vPoints.contains(point);
+            int nCell = m_components.getCellIndex(point);
+            return nCell >= 0 && m_components.isSameComponent(m_nCell, nCell);
         }
 
         public void addPoint(Roads2DGeneratorPoint point) {
-            if (!hasPoint(point)) {
-                m_vPoints.add(point);
+            int nCell = m_components.getCellIndex(point);
+            if (nCell >= 0) {
+                m_components.addConnectedCells(m_nCell, nCell);
             }
         }
 
+        public int getSize() {
+            return m_components.getComponentSizeByCell(m_nCell);
+        }
+
+        public int getId() {
+            return m_components.getComponentIdByCell(m_nCell);
+        }
+
         public List<Roads2DGeneratorPoint> getPoints() {
-            return new ArrayList<>(m_vPoints); // copy
+            return m_components.getPointsByCell(m_nCell); // copy
         }
 
         public boolean hasIntersection(Roads2DGeneratorConnectedComponent component) {
-            for (Roads2DGeneratorPoint point : m_vPoints) {
-                if (component.hasPoint(point)) {
-                    return true;
-                }
-            }
-            return false;
+            return m_components == component.m_components
+                && m_components.isSameComponent(m_nCell, component.m_nCell);
         }
 
         public void merge(Roads2DGeneratorConnectedComponent component) {
+            if (m_components == component.m_components) {
+                m_components.addConnectedCells(m_nCell, component.m_nCell);
+                return;
+            }
             for (Roads2DGeneratorPoint point : component.getPoints()) {
                 this.addPoint(point);
             }
         }
     }
 
-    // Roads2DGeneratorConnectedComponents
+    // Roads2DGeneratorConnectedComponents - union-find (disjoint set) over cells of the map, cell = x + y * width
+    // The order of components and the order of points inside a component are the same as
+    // the previous list-merging implementation produced, so the generation stays reproducible:
+    //  - components are ordered by creation, a merged component takes the place of the later one
+    //  - merging A (earlier) and B (later) by edge (a in A, b in B) gives points: B, a, A without a
     public class Roads2DGeneratorConnectedComponents {
-        private List<Roads2DGeneratorConnectedComponent> m_vComponents;
-
-        public Roads2DGeneratorConnectedComponents() {
-            this.m_vComponents = new ArrayList<>();
+        private final int m_nWidth;
+        private final int m_nHeight;
+        private final int[] m_vParent; // -1 - cell is not in any component
+        private final int[] m_vSize; // valid for roots
+        private final int[] m_vOrder; // creation order, valid for roots
+        private final int[] m_vHead; // first cell of the points list, valid for roots
+        private final int[] m_vTail; // last cell of the points list, valid for roots
+        private final int[] m_vNext;
+        private final int[] m_vPrev;
+        private int m_nCreated;
+        private int m_nComponents;
+        private int[] m_vRootToId; // built on demand, null when outdated
+        private int[] m_vIdToRoot;
+
+        public Roads2DGeneratorConnectedComponents(int nWidth, int nHeight) {
+            this.m_nWidth = nWidth;
+            this.m_nHeight = nHeight;
+            int nCells = nWidth * nHeight;
+            this.m_vParent = new int[nCells];
+            this.m_vSize = new int[nCells];
+            this.m_vOrder = new int[nCells];
+            this.m_vHead = new int[nCells];
+            this.m_vTail = new int[nCells];
+            this.m_vNext = new int[nCells];
+            this.m_vPrev = new int[nCells];
+            Arrays.fill(m_vParent, -1);
+            this.m_nCreated = 0;
+            this.m_nComponents = 0;
+        }
+
+        public int getCellIndex(Roads2DGeneratorPoint point) {
+            int x = point.getX();
+            int y = point.getY();
+            if (x < 0 || x >= m_nWidth || y < 0 || y >= m_nHeight) {
+                return -1;
+            }
+            return x + y * m_nWidth;
         }
 
         public void addConnectedPoints(Roads2DGeneratorPoint p1, Roads2DGeneratorPoint p2) {
-            boolean bAdded = false;
+            int nCell1 = getCellIndex(p1);
+            int nCell2 = getCellIndex(p2);
+            if (nCell1 >= 0 && nCell2 >= 0) {
+                addConnectedCells(nCell1, nCell2);
+            }
+        }
 
-            for (Roads2DGeneratorConnectedComponent component : m_vComponents) {
-                if (component.hasPoint(p1)) {
-                    component.addPoint(p2);
-                    bAdded = true;
+        public void addConnectedCells(int nCell1, int nCell2) {
+            int nRoot1 = m_vParent[nCell1] == -1 ? -1 : find(nCell1);
+            int nRoot2 = m_vParent[nCell2] == -1 ? -1 : find(nCell2);
+            if (nRoot1 == -1 && nRoot2 == -1) {
+                if (nCell1 == nCell2) {
+                    return;
                 }
-                if (component.hasPoint(p2)) {
-                    component.addPoint(p1);
-                    bAdded = true;
+                m_vParent[nCell1] = nCell1;
+                m_vSize[nCell1] = 1;
+                m_vOrder[nCell1] = m_nCreated++;
+                m_vHead[nCell1] = nCell1;
+                m_vTail[nCell1] = nCell1;
+                m_vPrev[nCell1] = -1;
+                m_vNext[nCell1] = -1;
+                m_nComponents++;
+                appendCell(nCell1, nCell2);
+            } else if (nRoot2 == -1) {
+                appendCell(nRoot1, nCell2);
+            } else if (nRoot1 == -1) {
+                appendCell(nRoot2, nCell1);
+            } else if (nRoot1 != nRoot2) {
+                if (m_vOrder[nRoot1] < m_vOrder[nRoot2]) {
+                    union(nRoot1, nCell1, nRoot2);
+                } else {
+                    union(nRoot2, nCell2, nRoot1);
                 }
+            } else {
+                return;
             }
-            if (!bAdded) {
-                Roads2DGeneratorConnectedComponent newComponent = new Roads2DGeneratorConnectedComponent();
-                newComponent.addPoint(p1);
-                newComponent.addPoint(p2);
-                m_vComponents.add(newComponent);
+            m_vRootToId = null;
+        }
+
+        public boolean isSameComponent(int nCell1, int nCell2) {
+            if (m_vParent[nCell1] == -1 || m_vParent[nCell2] == -1) {
+                return false;
             }
-            mergeComponents();
+            return find(nCell1) == find(nCell2);
+        }
+
+        public int getComponentsCount() {
+            return m_nComponents;
+        }
+
+        // component id in [0, getComponentsCount()) or -1 when the cell is not a part of any component
+        public int getComponentId(int x, int y) {
+            return getComponentIdByCell(x + y * m_nWidth);
+        }
+
+        public int getComponentSize(int nId) {
+            buildIds();
+            return m_vSize[m_vIdToRoot[nId]];
         }
 
         public List<Roads2DGeneratorConnectedComponent> getComponents() {
-            return new ArrayList<>(m_vComponents);
-        }
-
-        private void mergeComponents() {
-            List<Roads2DGeneratorConnectedComponent> mergedComponents = new ArrayList<>(this.m_vComponents);
-            boolean bMerged = true;
-
-            while (bMerged) {
-                bMerged = false;
-                for (int i = mergedComponents.size() - 1; i >= 1; i--) {
-                    for (int t = i - 1; t >= 0; t--) {
-                        if (mergedComponents.get(i).hasIntersection(mergedComponents.get(t))) {
-                            mergedComponents.get(i).merge(mergedComponents.get(t));
-                            mergedComponents.remove(t);
-                            bMerged = true;
-                            break;
-                        }
-                    }
-                    if (bMerged) {
-                        break;
-                    }
+            buildIds();
+            List<Roads2DGeneratorConnectedComponent> vComponents = new ArrayList<>(m_nComponents);
+            for (int i = 0; i < m_nComponents; i++) {
+                vComponents.add(new Roads2DGeneratorConnectedComponent(this, m_vIdToRoot[i]));
+            }
+            return vComponents;
+        }
+
+        private int getComponentIdByCell(int nCell) {
+            if (m_vParent[nCell] == -1) {
+                return -1;
+            }
+            buildIds();
+            return m_vRootToId[find(nCell)];
+        }
+
+        private int getComponentSizeByCell(int nCell) {
+            if (m_vParent[nCell] == -1) {
+                return 0;
+            }
+            return m_vSize[find(nCell)];
+        }
+
+        private List<Roads2DGeneratorPoint> getPointsByCell(int nCell) {
+            List<Roads2DGeneratorPoint> vPoints = new ArrayList<>();
+            if (m_vParent[nCell] == -1) {
+                return vPoints;
+            }
+            int nRoot = find(nCell);
+            for (int c = m_vHead[nRoot]; c != -1; c = m_vNext[c]) {
+                vPoints.add(new Roads2DGeneratorPoint(c % m_nWidth, c / m_nWidth));
+            }
+            return vPoints;
+        }
+
+        private int find(int nCell) {
+            while (m_vParent[nCell] != nCell) {
+                m_vParent[nCell] = m_vParent[m_vParent[nCell]]; // path halving
+                nCell = m_vParent[nCell];
+            }
+            return nCell;
+        }
+
+        private void appendCell(int nRoot, int nCell) {
+            m_vParent[nCell] = nRoot;
+            m_vSize[nRoot]++;
+            m_vPrev[nCell] = m_vTail[nRoot];
+            m_vNext[nCell] = -1;
+            m_vNext[m_vTail[nRoot]] = nCell;
+            m_vTail[nRoot] = nCell;
+        }
+
+        // merge earlier component A into later component B, nCellA - endpoint of the edge inside of A
+        private void union(int nRootA, int nCellA, int nRootB) {
+            int nHeadA = m_vHead[nRootA];
+            int nTailA = m_vTail[nRootA];
+            // unlink nCellA from list A
+            if (m_vPrev[nCellA] == -1) {
+                nHeadA = m_vNext[nCellA];
+            } else {
+                m_vNext[m_vPrev[nCellA]] = m_vNext[nCellA];
+            }
+            if (m_vNext[nCellA] == -1) {
+                nTailA = m_vPrev[nCellA];
+            } else {
+                m_vPrev[m_vNext[nCellA]] = m_vPrev[nCellA];
+            }
+            // B, nCellA, rest of A
+            int nHead = m_vHead[nRootB];
+            m_vNext[m_vTail[nRootB]] = nCellA;
+            m_vPrev[nCellA] = m_vTail[nRootB];
+            m_vNext[nCellA] = nHeadA;
+            int nTail = nCellA;
+            if (nHeadA != -1) {
+                m_vPrev[nHeadA] = nCellA;
+                nTail = nTailA;
+            }
+
+            // union by size, the root keeps the metadata of B
+            int nOrder = m_vOrder[nRootB];
+            int nSize = m_vSize[nRootA] + m_vSize[nRootB];
+            int nRoot = nRootB;
+            if (m_vSize[nRootA] > m_vSize[nRootB]) {
+                nRoot = nRootA;
+                m_vParent[nRootB] = nRootA;
+            } else {
+                m_vParent[nRootA] = nRootB;
+            }
+            m_vSize[nRoot] = nSize;
+            m_vOrder[nRoot] = nOrder;
+            m_vHead[nRoot] = nHead;
+            m_vTail[nRoot] = nTail;
+            m_nComponents--;
+        }
+
+        private void buildIds() {
+            if (m_vRootToId != null) {
+                return;
+            }
+            // creation order is unique, so bucket the roots by it
+            int[] vByOrder = new int[m_nCreated];
+            Arrays.fill(vByOrder, -1);
+            for (int c = 0; c < m_vParent.length; c++) {
+                if (m_vParent[c] == c) {
+                    vByOrder[m_vOrder[c]] = c;
+                }
+            }
+            m_vRootToId = new int[m_vParent.length];
+            m_vIdToRoot = new int[m_nComponents];
+            int nId = 0;
+            for (int nRoot : vByOrder) {
+                if (nRoot != -1) {
+                    m_vRootToId[nRoot] = nId;
+                    m_vIdToRoot[nId] = nRoot;
+                    nId++;
                 }
             }
-            this.m_vComponents = new ArrayList<>(mergedComponents);
         }
     }
 
@@ -281,20 +1109,477 @@ public class Roads2DGenerator {
             this.second = second;
         }
 
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (!(o instanceof Roads2DGeneratorPair)) return false;
-            Roads2DGeneratorPair<?, ?> pair = (Roads2DGeneratorPair<?, ?>) o;
-            return first.equals(pair.first) && second.equals(pair.second);
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Roads2DGeneratorPair)) return false;
+            Roads2DGeneratorPair<?, ?> pair = (Roads2DGeneratorPair<?, ?>) o;
+            return first.equals(pair.first) && second.equals(pair.second);
+        }
+
+        @Override
+        public int hashCode() {
+            return 100000 * (int)first + (int)second;
+        }
+    }
+
+    // Roads2DGeneratorBitGrid - pixel map packed one bit per cell
+    // row y is stored in m_vWords[y * m_nWordsPerRow .. (y + 1) * m_nWordsPerRow), bit (x & 63) of word (x >> 6)
+    public class Roads2DGeneratorBitGrid {
+        private final int m_nWidth;
+        private final int m_nHeight;
+        private final int m_nWordsPerRow;
+        private final long[] m_vWords;
+
+        public Roads2DGeneratorBitGrid(int nWidth, int nHeight) {
+            this.m_nWidth = Math.max(nWidth, 0);
+            this.m_nHeight = Math.max(nHeight, 0);
+            this.m_nWordsPerRow = (this.m_nWidth + 63) >>> 6;
+            this.m_vWords = new long[m_nWordsPerRow * this.m_nHeight];
+        }
+
+        public int getWidth() {
+            return m_nWidth;
+        }
+
+        public int getHeight() {
+            return m_nHeight;
+        }
+
+        public int getWordsPerRow() {
+            return m_nWordsPerRow;
+        }
+
+        // x, y must be inside of the grid, no bounds checks here (hot path)
+        public boolean get(int x, int y) {
+            return ((m_vWords[y * m_nWordsPerRow + (x >>> 6)] >>> x) & 1L) != 0;
+        }
+
+        public void set(int x, int y, boolean bValue) {
+            int idx = y * m_nWordsPerRow + (x >>> 6);
+            if (bValue) {
+                m_vWords[idx] |= 1L << x;
+            } else {
+                m_vWords[idx] &= ~(1L << x);
+            }
+        }
+
+        public void clear() {
+            Arrays.fill(m_vWords, 0L);
+        }
+
+        // bits above width are dropped
+        public void setWord(int nWordInRow, int y, long nWord) {
+            if (nWordInRow == m_nWordsPerRow - 1 && (m_nWidth & 63) != 0) {
+                nWord &= (1L << (m_nWidth & 63)) - 1;
+            }
+            m_vWords[y * m_nWordsPerRow + nWordInRow] = nWord;
+        }
+
+        // nCount (1..57) cells from (x, y) to the right as bits 0.., the cells must be inside of the grid
+        public long getBits(int x, int y, int nCount) {
+            int idx = y * m_nWordsPerRow + (x >>> 6);
+            int nShift = x & 63;
+            long bits = m_vWords[idx] >>> nShift;
+            if (nShift + nCount > 64) {
+                bits |= m_vWords[idx + 1] << (64 - nShift);
+            }
+            return bits & ((1L << nCount) - 1);
+        }
+
+        // raw access to the packed row, bits above width are always zero
+        public long getWord(int nWordInRow, int y) {
+            return m_vWords[y * m_nWordsPerRow + nWordInRow];
+        }
+
+        // set or reset the rectangle, bounds are inclusive and clipped to the grid
+        public void fillRect(int x_start, int y_start, int x_end, int y_end, boolean bValue) {
+            int x0 = Math.max(x_start, 0);
+            int x1 = Math.min(x_end, m_nWidth - 1);
+            int y0 = Math.max(y_start, 0);
+            int y1 = Math.min(y_end, m_nHeight - 1);
+            if (x0 > x1 || y0 > y1) {
+                return;
+            }
+            int nFirstWord = x0 >>> 6;
+            int nLastWord = x1 >>> 6;
+            for (int y = y0; y <= y1; y++) {
+                int nRow = y * m_nWordsPerRow;
+                for (int w = nFirstWord; w <= nLastWord; w++) {
+                    long mask = -1L;
+                    if (w == nFirstWord) {
+                        mask &= -1L << x0;
+                    }
+                    if (w == nLastWord) {
+                        mask &= -1L >>> (63 - (x1 & 63));
+                    }
+                    if (bValue) {
+                        m_vWords[nRow + w] |= mask;
+                    } else {
+                        m_vWords[nRow + w] &= ~mask;
+                    }
+                }
+            }
+        }
+
+        // set or reset the cells on the edges of the grid
+        public void fillBorder(boolean bValue) {
+            fillRect(0, 0, m_nWidth - 1, 0, bValue);
+            fillRect(0, m_nHeight - 1, m_nWidth - 1, m_nHeight - 1, bValue);
+            fillRect(0, 0, 0, m_nHeight - 1, bValue);
+            fillRect(m_nWidth - 1, 0, m_nWidth - 1, m_nHeight - 1, bValue);
+        }
+
+        // set every cell which is set in the other grid, other (0, 0) lies on (x_offset, y_offset), clipped to the grid
+        public void orGrid(Roads2DGeneratorBitGrid other, int x_offset, int y_offset) {
+            int y0 = Math.max(y_offset, 0);
+            int y1 = Math.min(y_offset + other.getHeight(), m_nHeight);
+            // only words of the other grid which lie on this grid
+            int w0 = Math.max(Math.floorDiv(-x_offset, 64), 0);
+            int w1 = Math.min(Math.floorDiv(m_nWidth - x_offset + 63, 64), other.getWordsPerRow());
+            for (int y = y0; y < y1; y++) {
+                for (int w = w0; w < w1; w++) {
+                    long word = other.getWord(w, y - y_offset);
+                    if (word != 0) {
+                        orBits((w << 6) + x_offset, y, word);
+                    }
+                }
+            }
+        }
+
+        // bit i of nBits goes to cell (x + i, y), cells outside of the grid are dropped
+        private void orBits(int x, int y, long nBits) {
+            if (x < 0) {
+                if (x <= -64) {
+                    return;
+                }
+                nBits >>>= -x;
+                x = 0;
+            }
+            if (x >= m_nWidth) {
+                return;
+            }
+            int nValid = m_nWidth - x;
+            if (nValid < 64) {
+                nBits &= (1L << nValid) - 1;
+            }
+            int idx = y * m_nWordsPerRow + (x >>> 6);
+            int nShift = x & 63;
+            m_vWords[idx] |= nBits << nShift;
+            if (nShift != 0 && (x >>> 6) + 1 < m_nWordsPerRow) {
+                m_vWords[idx + 1] |= nBits >>> (64 - nShift);
+            }
+        }
+
+        public int countTrue() {
+            int ret = 0;
+            for (long word : m_vWords) {
+                ret += Long.bitCount(word);
+            }
+            return ret;
+        }
+    }
+
+    // Roads2DGeneratorRect - rectangle of cells, bounds are inclusive
+    public class Roads2DGeneratorRect {
+        private final int m_nXStart;
+        private final int m_nYStart;
+        private final int m_nXEnd;
+        private final int m_nYEnd;
+
+        public Roads2DGeneratorRect(int x_start, int y_start, int x_end, int y_end) {
+            this.m_nXStart = x_start;
+            this.m_nYStart = y_start;
+            this.m_nXEnd = x_end;
+            this.m_nYEnd = y_end;
+        }
+
+        public int getXStart() {
+            return m_nXStart;
+        }
+
+        public int getYStart() {
+            return m_nYStart;
+        }
+
+        public int getXEnd() {
+            return m_nXEnd;
+        }
+
+        public int getYEnd() {
+            return m_nYEnd;
+        }
+    }
+
+    // Roads2DGeneratorPresetMask - raster of preset cells placed on the map with offset
+    public class Roads2DGeneratorPresetMask {
+        private final Roads2DGeneratorBitGrid m_mask;
+        private final int m_nXOffset;
+        private final int m_nYOffset;
+
+        public Roads2DGeneratorPresetMask(Roads2DGeneratorBitGrid mask, int x_offset, int y_offset) {
+            this.m_mask = mask;
+            this.m_nXOffset = x_offset;
+            this.m_nYOffset = y_offset;
+        }
+
+        public Roads2DGeneratorBitGrid getMask() {
+            return m_mask;
+        }
+
+        public int getXOffset() {
+            return m_nXOffset;
+        }
+
+        public int getYOffset() {
+            return m_nYOffset;
+        }
+    }
+
+    // Roads2DGeneratorMoveDiagonalTailsMode
+    //  FULL_SCAN - every pass checks every cell of the map (reference mode)
+    //  DIRTY_WORKLIST - every pass checks only 2x2 blocks changed since the last check, same result as FULL_SCAN
+    public enum Roads2DGeneratorMoveDiagonalTailsMode {
+        FULL_SCAN,
+        DIRTY_WORKLIST
+    }
+
+    // Roads2DGeneratorCellularMode - how removeRames(), connectAllClosePoints() and removeAllShortCicles() scan the map
+    //  CELL_BY_CELL - every inner cell is checked in order column by column (reference mode)
+    //  BIT_PARALLEL - rules are evaluated for 64 cells at once over packed row words, then only the found cells
+    //      (and cells around the changed ones) are checked in the same order, same result as CELL_BY_CELL
+    public enum Roads2DGeneratorCellularMode {
+        CELL_BY_CELL,
+        BIT_PARALLEL
+    }
+
+    // Roads2DGeneratorRoadPart - type of a cell by its road neighbours, getCode() is the tile code of exportLikeTileCodes(),
+    // getName() is the name of exportLikeTable()
+    public enum Roads2DGeneratorRoadPart {
+        EMPTY(""),
+        UNKNOWN("unknown"),
+        CROSS("cross"),
+        HORIZONTAL("horizontal"),
+        VERTICAL("vertical"),
+        RIGHT_DOWN("right-down"),
+        LEFT_DOWN("left-down"),
+        RIGHT_UP("right-up"),
+        LEFT_UP("left-up"),
+        LEFT_UP_DOWN("left-up-down"),
+        RIGHT_UP_DOWN("right-up-down"),
+        LEFT_RIGHT_DOWN("left-right-down"),
+        LEFT_RIGHT_UP("left-right-up");
+
+        private static final Roads2DGeneratorRoadPart[] VALUES = values();
+        private final String m_sName;
+
+        Roads2DGeneratorRoadPart(String sName) {
+            m_sName = sName;
+        }
+
+        public String getName() {
+            return m_sName;
+        }
+
+        public byte getCode() {
+            return (byte)ordinal();
+        }
+
+        // null for unknown code
+        public static Roads2DGeneratorRoadPart fromCode(byte nCode) {
+            return nCode >= 0 && nCode < VALUES.length ? VALUES[nCode] : null;
+        }
+
+        // null for unknown name
+        public static Roads2DGeneratorRoadPart fromName(String sName) {
+            for (Roads2DGeneratorRoadPart part : VALUES) {
+                if (part.m_sName.equals(sName)) {
+                    return part;
+                }
+            }
+            return null;
+        }
+    }
+
+    // Roads2DGeneratorInitPointsMode
+    //  RANDOM_RETRY - random cells until enough points, rejected draws are retried (legacy, limited by MaxAllowInitPointsTries)
+    //  SAMPLE_WITHOUT_REPLACEMENT - every cell which is not a border or a preset is drawn at most once (partial Fisher-Yates);
+    //      points are distinct cells (RANDOM_RETRY counts repeated cells too), if all cells are drawn the map is full and that is fine
+    public enum Roads2DGeneratorInitPointsMode {
+        RANDOM_RETRY,
+        SAMPLE_WITHOUT_REPLACEMENT
+    }
+
+    // Roads2DGeneratorRandomMode
+    //  LEGACY_SIN - sin-based generator, the same maps as before and as the c++ version
+    //  SPLIT_MIX - SplitMix64, streams differ by gamma
+    //  XOROSHIRO - xoroshiro128**, streams are jumps of 2^64 numbers
+    public enum Roads2DGeneratorRandomMode {
+        LEGACY_SIN,
+        SPLIT_MIX,
+        XOROSHIRO
+    }
+
+    // Roads2DGeneratorStatus - result of generate() with a deadline or a cancellation token
+    public enum Roads2DGeneratorStatus {
+        SUCCESS,
+        FAILED,
+        TIMED_OUT,
+        CANCELLED
+    }
+
+    // Roads2DGeneratorStage - steps of generate()
+    public enum Roads2DGeneratorStage {
+        RANDOM_INIT_POINTS,
+        MOVE_DIAGONAL_TAILS,
+        CONNECT_SINGLE_POINTS,
+        REMOVE_SINGLE_POINTS,
+        REMOVE_RAMES,
+        CONNECT_ALL_CLOSE_POINTS,
+        REMOVE_ALL_SHORT_CICLES,
+        TRY_CONNECT_DEADLOCKS,
+        REMOVE_DEADLOCKS,
+        CONNECT_UNUNION_ROADS
+    }
+
+    // Roads2DGeneratorStageStats - one stage of generate()
+    public class Roads2DGeneratorStageStats {
+        private final Roads2DGeneratorStage m_stage;
+        private final int m_nStep;
+        private final boolean m_bSuccess;
+        private final long m_nTimeNanos;
+        private final long m_nLoopIterations;
+        private final long m_nCellsChanged;
+        private final long m_nFullScans;
+
+        public Roads2DGeneratorStageStats(Roads2DGeneratorStage stage, int nStep, boolean bSuccess, long nTimeNanos,
+                                          long nLoopIterations, long nCellsChanged, long nFullScans) {
+            this.m_stage = stage;
+            this.m_nStep = nStep;
+            this.m_bSuccess = bSuccess;
+            this.m_nTimeNanos = nTimeNanos;
+            this.m_nLoopIterations = nLoopIterations;
+            this.m_nCellsChanged = nCellsChanged;
+            this.m_nFullScans = nFullScans;
+        }
+
+        public Roads2DGeneratorStage getStage() {
+            return m_stage;
+        }
+
+        // index of the stage in generate(), the same stage runs on several steps
+        public int getStep() {
+            return m_nStep;
+        }
+
+        public boolean isSuccess() {
+            return m_bSuccess;
+        }
+
+        public long getTimeNanos() {
+            return m_nTimeNanos;
+        }
+
+        // iterations of all Roads2DGeneratorSafeLoop inside of the stage (compare with setMaxAllow*Tries)
+        public long getLoopIterations() {
+            return m_nLoopIterations;
+        }
+
+        public long getCellsChanged() {
+            return m_nCellsChanged;
+        }
+
+        // passes over every cell of the map
+        public long getFullScans() {
+            return m_nFullScans;
+        }
+
+        @Override
+        public String toString() {
+            return m_nStep + ". " + m_stage + (m_bSuccess ? "" : " FAILED")
+                + ": " + (m_nTimeNanos / 1000) + " us"
+                + ", loops " + m_nLoopIterations
+                + ", changed " + m_nCellsChanged
+                + ", full scans " + m_nFullScans;
+        }
+    }
+
+    // Roads2DGeneratorGenerationStats - stages of the last generate()
+    public class Roads2DGeneratorGenerationStats {
+        private final List<Roads2DGeneratorStageStats> m_vStages;
+        private boolean m_bSuccess;
+        private long m_nTimeNanos;
+
+        public Roads2DGeneratorGenerationStats() {
+            this.m_vStages = new ArrayList<>();
+            this.m_bSuccess = false;
+            this.m_nTimeNanos = 0;
+        }
+
+        public void addStage(Roads2DGeneratorStageStats stats) {
+            m_vStages.add(stats);
+        }
+
+        public void finish(boolean bSuccess, long nTimeNanos) {
+            m_bSuccess = bSuccess;
+            m_nTimeNanos = nTimeNanos;
+        }
+
+        // steps in the order of execution, the last one is the failed one if generate() failed
+        public List<Roads2DGeneratorStageStats> getStages() {
+            return new ArrayList<>(m_vStages); // copy
+        }
+
+        public boolean isSuccess() {
+            return m_bSuccess;
+        }
+
+        // the whole generate() including preparations
+        public long getTimeNanos() {
+            return m_nTimeNanos;
+        }
+
+        public long getTimeNanos(Roads2DGeneratorStage stage) {
+            long ret = 0;
+            for (Roads2DGeneratorStageStats stats : m_vStages) {
+                if (stats.getStage() == stage) {
+                    ret += stats.getTimeNanos();
+                }
+            }
+            return ret;
+        }
+
+        public long getLoopIterations(Roads2DGeneratorStage stage) {
+            long ret = 0;
+            for (Roads2DGeneratorStageStats stats : m_vStages) {
+                if (stats.getStage() == stage) {
+                    ret += stats.getLoopIterations();
+                }
+            }
+            return ret;
         }
 
         @Override
-        public int hashCode() {
-            return 100000 * (int)first + (int)second;
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("generate() ").append(m_bSuccess ? "succeeded" : "failed")
+                .append(" in ").append(m_nTimeNanos / 1000).append(" us\n");
+            for (Roads2DGeneratorStageStats stats : m_vStages) {
+                sb.append("  ").append(stats).append("\n");
+            }
+            return sb.toString();
         }
     }
 
+    // Roads2DGeneratorStageListener - hook on stage boundaries of generate() (logging, metrics, JFR events)
+    public interface Roads2DGeneratorStageListener {
+        void onStageBegin(Roads2DGeneratorStage stage, int nStep);
+        void onStageEnd(Roads2DGeneratorStageStats stats);
+    }
+
+    // changes when maps of the same config change, see Roads2DGeneratorConfig.getCanonicalHash()
+    private static final int CANONICAL_HASH_VERSION = 1;
+
     // Roads2DGeneratorConfig
     public class Roads2DGeneratorConfig {
         private int m_nWidth;
@@ -309,7 +1594,14 @@ public class Roads2DGenerator {
         private boolean m_bSetByUserMaxAllowConnectUnunionRoadsTries;
         private int m_nMaxAllowRemoveAllShortCiclesLoopTries;
         private boolean m_bSetByUserMaxAllowRemoveAllShortCiclesLoopTries;
-        private final Map<Roads2DGeneratorPair<Integer, Integer>, Boolean> m_presets = new HashMap<>();
+        private Roads2DGeneratorMoveDiagonalTailsMode m_nMoveDiagonalTailsMode;
+        private Roads2DGeneratorCellularMode m_nCellularMode;
+        private Roads2DGeneratorInitPointsMode m_nInitPointsMode;
+        private Roads2DGeneratorRandomMode m_nRandomMode;
+        private int m_nRandomStream;
+        private boolean m_bDebug;
+        private final List<Roads2DGeneratorRect> m_vPresetRects = new ArrayList<>();
+        private final List<Roads2DGeneratorPresetMask> m_vPresetMasks = new ArrayList<>();
 
 
         public Roads2DGeneratorConfig() {
@@ -329,7 +1621,41 @@ public class Roads2DGenerator {
             m_bSetByUserMaxAllowConnectUnunionRoadsTries = false;
             m_nMaxAllowRemoveAllShortCiclesLoopTries = 0;
             m_bSetByUserMaxAllowRemoveAllShortCiclesLoopTries = false;
-            m_presets.clear();
+            m_nMoveDiagonalTailsMode = Roads2DGeneratorMoveDiagonalTailsMode.DIRTY_WORKLIST;
+            m_nCellularMode = Roads2DGeneratorCellularMode.BIT_PARALLEL;
+            m_nInitPointsMode = Roads2DGeneratorInitPointsMode.RANDOM_RETRY;
+            m_nRandomMode = Roads2DGeneratorRandomMode.LEGACY_SIN;
+            m_nRandomStream = 0;
+            m_bDebug = false;
+            m_vPresetRects.clear();
+            m_vPresetMasks.clear();
+            return this;
+        }
+
+        // copy of all parameters, preset masks are shared (not copied)
+        public Roads2DGeneratorConfig copyFrom(Roads2DGeneratorConfig other) {
+            m_nWidth = other.m_nWidth;
+            m_nHeight = other.m_nHeight;
+            m_nDensity = other.m_nDensity;
+            m_nSeedInitRandom = other.m_nSeedInitRandom;
+            m_nMaxAllowInitPointsTries = other.m_nMaxAllowInitPointsTries;
+            m_bSetByUserMaxAllowInitPointsTries = other.m_bSetByUserMaxAllowInitPointsTries;
+            m_nMaxAllowMoveDiagonalTailsTries = other.m_nMaxAllowMoveDiagonalTailsTries;
+            m_bSetByUserMaxAllowMoveDiagonalTailsTries = other.m_bSetByUserMaxAllowMoveDiagonalTailsTries;
+            m_nMaxAllowConnectUnunionRoadsTries = other.m_nMaxAllowConnectUnunionRoadsTries;
+            m_bSetByUserMaxAllowConnectUnunionRoadsTries = other.m_bSetByUserMaxAllowConnectUnunionRoadsTries;
+            m_nMaxAllowRemoveAllShortCiclesLoopTries = other.m_nMaxAllowRemoveAllShortCiclesLoopTries;
+            m_bSetByUserMaxAllowRemoveAllShortCiclesLoopTries = other.m_bSetByUserMaxAllowRemoveAllShortCiclesLoopTries;
+            m_nMoveDiagonalTailsMode = other.m_nMoveDiagonalTailsMode;
+            m_nCellularMode = other.m_nCellularMode;
+            m_nInitPointsMode = other.m_nInitPointsMode;
+            m_nRandomMode = other.m_nRandomMode;
+            m_nRandomStream = other.m_nRandomStream;
+            m_bDebug = other.m_bDebug;
+            m_vPresetRects.clear();
+            m_vPresetRects.addAll(other.m_vPresetRects);
+            m_vPresetMasks.clear();
+            m_vPresetMasks.addAll(other.m_vPresetMasks);
             return this;
         }
 
@@ -467,33 +1793,215 @@ public class Roads2DGenerator {
             return m_nMaxAllowRemoveAllShortCiclesLoopTries;
         }
 
+        public Roads2DGeneratorConfig setMoveDiagonalTailsMode(Roads2DGeneratorMoveDiagonalTailsMode nMode) {
+            this.m_nMoveDiagonalTailsMode = nMode;
+            return this;
+        }
+
+        public Roads2DGeneratorMoveDiagonalTailsMode getMoveDiagonalTailsMode() {
+            return m_nMoveDiagonalTailsMode;
+        }
+
+        public Roads2DGeneratorConfig setCellularMode(Roads2DGeneratorCellularMode nMode) {
+            this.m_nCellularMode = nMode;
+            return this;
+        }
+
+        public Roads2DGeneratorCellularMode getCellularMode() {
+            return m_nCellularMode;
+        }
+
+        public Roads2DGeneratorConfig setInitPointsMode(Roads2DGeneratorInitPointsMode nMode) {
+            this.m_nInitPointsMode = nMode;
+            return this;
+        }
+
+        public Roads2DGeneratorInitPointsMode getInitPointsMode() {
+            return m_nInitPointsMode;
+        }
+
+        public Roads2DGeneratorConfig setRandomMode(Roads2DGeneratorRandomMode nMode) {
+            this.m_nRandomMode = nMode;
+            return this;
+        }
+
+        public Roads2DGeneratorRandomMode getRandomMode() {
+            return m_nRandomMode;
+        }
+
+        // independent sequence for the same seed (per thread or per tile), not used by LEGACY_SIN
+        public Roads2DGeneratorConfig setRandomStream(int nStream) {
+            this.m_nRandomStream = Math.max(nStream, 0);
+            return this;
+        }
+
+        public int getRandomStream() {
+            return m_nRandomStream;
+        }
+
+        // print the whole map to stdout when generation fails (slow on big maps)
+        public Roads2DGeneratorConfig setDebug(boolean bDebug) {
+            this.m_bDebug = bDebug;
+            return this;
+        }
+
+        public boolean isDebug() {
+            return m_bDebug;
+        }
+
+        // exclude the rectangle, bounds are inclusive
         public Roads2DGeneratorConfig setPresetExcludes(int x_start, int y_start, int x_end, int y_end) {
-            for (int x = x_start; x <= x_end; x++) {
-                for (int y = y_start; y <= y_end; y++) {
-                    m_presets.put(new Roads2DGeneratorPair<>(x, y), false);
+            m_vPresetRects.add(new Roads2DGeneratorRect(x_start, y_start, x_end, y_end));
+            return this;
+        }
+
+        public Roads2DGeneratorConfig setPresetExcludes(List<Roads2DGeneratorRect> vRects) {
+            m_vPresetRects.addAll(vRects);
+            return this;
+        }
+
+        // rectangles and masks
+        public Roads2DGeneratorConfig clearPresets() {
+            m_vPresetRects.clear();
+            m_vPresetMasks.clear();
+            return this;
+        }
+
+        // exclude every cell set in the mask, mask cell (0, 0) lies on map cell (x_offset, y_offset)
+        public Roads2DGeneratorConfig setPresetExcludesMask(Roads2DGeneratorBitGrid mask, int x_offset, int y_offset) {
+            m_vPresetMasks.add(new Roads2DGeneratorPresetMask(mask, x_offset, y_offset));
+            return this;
+        }
+
+        public Roads2DGeneratorConfig setPresetExcludesMask(Roads2DGeneratorBitGrid mask) {
+            return setPresetExcludesMask(mask, 0, 0);
+        }
+
+        public List<Roads2DGeneratorRect> getPresetRects() {
+            return new ArrayList<>(m_vPresetRects);
+        }
+
+        public List<Roads2DGeneratorPresetMask> getPresetMasks() {
+            return new ArrayList<>(m_vPresetMasks);
+        }
+
+        // sets every preset cell of the grid (cells outside of it are dropped)
+        public void fillPresets(Roads2DGeneratorBitGrid grid) {
+            for (Roads2DGeneratorRect rect : m_vPresetRects) {
+                grid.fillRect(rect.getXStart(), rect.getYStart(), rect.getXEnd(), rect.getYEnd(), true);
+            }
+            for (Roads2DGeneratorPresetMask mask : m_vPresetMasks) {
+                grid.orGrid(mask.getMask(), mask.getXOffset(), mask.getYOffset());
+            }
+        }
+
+        // SHA-256 (hex) of everything what changes the map of generate(): size, density, seed, tries set by user,
+        // init points and random modes, random stream and preset cells (the same cells give the same hash however
+        // they were set). Debug is not a part of it, neither are the diagonal tails and cellular modes: they only
+        // choose the implementation and give the same map. Maps of configs with the same hash are the same.
+        public String getCanonicalHash() {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(CANONICAL_HASH_VERSION)
+                .putInt(m_nWidth)
+                .putInt(m_nHeight)
+                .putInt(Float.floatToIntBits(m_nDensity))
+                .putInt(m_nSeedInitRandom)
+                .putInt(m_bSetByUserMaxAllowInitPointsTries ? 1 : 0)
+                .putInt(m_bSetByUserMaxAllowInitPointsTries ? m_nMaxAllowInitPointsTries : 0)
+                .putInt(m_bSetByUserMaxAllowMoveDiagonalTailsTries ? 1 : 0)
+                .putInt(m_bSetByUserMaxAllowMoveDiagonalTailsTries ? m_nMaxAllowMoveDiagonalTailsTries : 0)
+                .putInt(m_bSetByUserMaxAllowConnectUnunionRoadsTries ? 1 : 0)
+                .putInt(m_bSetByUserMaxAllowConnectUnunionRoadsTries ? m_nMaxAllowConnectUnunionRoadsTries : 0)
+                .putInt(m_bSetByUserMaxAllowRemoveAllShortCiclesLoopTries ? 1 : 0)
+                .putInt(m_bSetByUserMaxAllowRemoveAllShortCiclesLoopTries ? m_nMaxAllowRemoveAllShortCiclesLoopTries : 0)
+                .putInt(m_nRandomStream);
+            digest.update(buffer.array(), 0, buffer.position());
+            String sModes = m_nInitPointsMode.name() + "," + m_nRandomMode.name();
+            digest.update(sModes.getBytes(StandardCharsets.US_ASCII));
+
+            Roads2DGeneratorBitGrid presets = new Roads2DGeneratorBitGrid(m_nWidth, m_nHeight);
+            fillPresets(presets);
+            ByteBuffer row = ByteBuffer.allocate(presets.getWordsPerRow() * 8).order(ByteOrder.LITTLE_ENDIAN);
+            for (int y = 0; y < presets.getHeight(); y++) {
+                row.clear();
+                for (int w = 0; w < presets.getWordsPerRow(); w++) {
+                    row.putLong(presets.getWord(w, y));
                 }
+                digest.update(row.array(), 0, row.position());
             }
-            return this;
+
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest.digest()) {
+                sb.append(Character.forDigit((b >>> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
         }
 
+        // expands every preset cell, prefer getPresetRects() and getPresetMasks() for big presets
         public Map<Roads2DGeneratorPair<Integer, Integer>, Boolean> getPresets() {
-            return new HashMap<>(m_presets);
+            Map<Roads2DGeneratorPair<Integer, Integer>, Boolean> presets = new HashMap<>();
+            for (Roads2DGeneratorRect rect : m_vPresetRects) {
+                for (int x = rect.getXStart(); x <= rect.getXEnd(); x++) {
+                    for (int y = rect.getYStart(); y <= rect.getYEnd(); y++) {
+                        presets.put(new Roads2DGeneratorPair<>(x, y), false);
+                    }
+                }
+            }
+            for (Roads2DGeneratorPresetMask mask : m_vPresetMasks) {
+                Roads2DGeneratorBitGrid grid = mask.getMask();
+                for (int x = 0; x < grid.getWidth(); x++) {
+                    for (int y = 0; y < grid.getHeight(); y++) {
+                        if (grid.get(x, y)) {
+                            presets.put(new Roads2DGeneratorPair<>(x + mask.getXOffset(), y + mask.getYOffset()), false);
+                        }
+                    }
+                }
+            }
+            return presets;
         }
     }
 
 
     // Roads2DGenerator
-    private List<List<Boolean>> m_vPixelMap;
-    private Roads2DGeneratorPseudoRandom m_random;
+    private Roads2DGeneratorBitGrid m_vPixelMap;
+    private Roads2DGeneratorRandom m_random;
     private Roads2DGeneratorConfig m_config;
     private String m_sErrorMessage;
-    private List<Integer> m_cachePresets;
+    private Roads2DGeneratorBitGrid m_cachePresets;
+    private Roads2DGeneratorGenerationStats m_stats;
+    private Roads2DGeneratorStageListener m_stageListener;
+    private long m_nCountLoopIterations; // counters for stats, only grow
+    private long m_nCountCellsChanged;
+    private long m_nCountFullScans;
+    private int m_nMaxAllowInitPointsTries;
+    private int m_nMaxAllowMoveDiagonalTailsTries;
+    private int m_nMaxAllowConnectUnunionRoadsTries;
+    private int m_nMaxAllowRemoveAllShortCiclesLoopTries;
+    private BitSet m_dirtyDiagonalTailsCurrent; // blocks to check in the running pass, index x * height + y
+    private BitSet m_dirtyDiagonalTailsNext; // blocks to check in the next pass
+    private int m_nDiagonalTailsScanPos; // position of the running pass, Integer.MAX_VALUE outside of the pass
+    private BitSet m_deadlockPoints; // always equal to isDeadlockPoint() of every cell, index x * height + y
+    private BitSet m_singlePoints; // always equal to isSinglePoint() of every cell, index x * height + y
+    private BitSet m_cellularCandidates; // cells to check in the running bit-parallel pass, null outside of the pass
+    private int m_nCellularScanPos; // position of the running bit-parallel pass, index x * height + y
+    private Roads2DGeneratorCancellationToken m_cancellationToken; // null - generate() can not be cancelled
+    private boolean m_bHasDeadline;
+    private long m_nDeadlineNanos; // System.nanoTime() of the deadline
+    private Roads2DGeneratorStatus m_nStopStatus; // TIMED_OUT / CANCELLED once stop is requested, otherwise null
 
     public Roads2DGenerator() {
         m_random = new Roads2DGeneratorPseudoRandom();
         m_config = new Roads2DGeneratorConfig();
         m_sErrorMessage = "";
-        m_cachePresets = new ArrayList<>();
+        m_cachePresets = new Roads2DGeneratorBitGrid(0, 0);
+        m_stats = new Roads2DGeneratorGenerationStats();
+        m_stageListener = null;
         resetMap();
     }
 
@@ -511,46 +2019,212 @@ public class Roads2DGenerator {
     }
 
     public boolean generate() {
-        // Calculate base coefficient for safety limits
-        float num = m_config.getWidth() * m_config.getHeight();
-        int nBaseCoefForSafeWhile = (int)(num * m_config.getDensity() * 2.0f);
+        return generate((Duration)null, null) == Roads2DGeneratorStatus.SUCCESS;
+    }
+
+    public Roads2DGeneratorStatus generate(Duration timeout) {
+        return generate(timeout, null);
+    }
+
+    public Roads2DGeneratorStatus generate(Roads2DGeneratorCancellationToken token) {
+        return generate(null, token);
+    }
+
+    // timeout - null for no limit, token - null if it can not be cancelled;
+    // both are checked on every loop iteration of every stage, the map is left as it was at the stop
+    public Roads2DGeneratorStatus generate(Duration timeout, Roads2DGeneratorCancellationToken token) {
+        long nStartTime = System.nanoTime();
+        m_cancellationToken = token;
+        m_bHasDeadline = timeout != null;
+        m_nDeadlineNanos = timeout != null ? nStartTime + toNanosSaturated(timeout) : 0;
+        m_nStopStatus = null;
+        m_stats = new Roads2DGeneratorGenerationStats();
+        beginGenerate();
+        boolean bSuccess = true;
+        for (int nStep = 0; nStep < PIPELINE.length && bSuccess; nStep++) {
+            if (isStopRequested()) {
+                bSuccess = false;
+                break;
+            }
+            bSuccess = runStageWithStats(PIPELINE[nStep], nStep);
+        }
+        m_stats.finish(bSuccess, System.nanoTime() - nStartTime);
+
+        Roads2DGeneratorStatus nStatus = Roads2DGeneratorStatus.SUCCESS;
+        if (!bSuccess) {
+            nStatus = m_nStopStatus != null ? m_nStopStatus : Roads2DGeneratorStatus.FAILED;
+        }
+        if (nStatus == Roads2DGeneratorStatus.TIMED_OUT) {
+            m_sErrorMessage = "Roads2DGenerator::generate(), timed out after " + (System.nanoTime() - nStartTime) / 1000000 + " ms";
+            System.err.println(m_sErrorMessage);
+        } else if (nStatus == Roads2DGeneratorStatus.CANCELLED) {
+            // requested by the caller, not an error to report
+            m_sErrorMessage = "Roads2DGenerator::generate(), cancelled";
+        }
+        m_cancellationToken = null;
+        m_bHasDeadline = false;
+        m_nStopStatus = null;
+        return nStatus;
+    }
 
-        // Set default tries if not set by user
-        if (!m_config.isSetByUserMaxAllowInitPointsTries()) {
-            m_config.setMaxAllowInitPointsTries(nBaseCoefForSafeWhile, false);
+    private static long toNanosSaturated(Duration timeout) {
+        try {
+            return Math.max(timeout.toNanos(), 0L);
+        } catch (ArithmeticException e) {
+            return timeout.isNegative() ? 0L : Long.MAX_VALUE / 2;
         }
-        if (!m_config.isSetByUserMaxAllowMoveDiagonalTailsTries()) {
-            m_config.setMaxAllowMoveDiagonalTailsTries(nBaseCoefForSafeWhile / 10, false);
+    }
+
+    // cheap enough for every loop iteration: two fields without deadline and token
+    private boolean isStopRequested() {
+        if (m_nStopStatus == null) {
+            if (m_cancellationToken != null && m_cancellationToken.isCancelled()) {
+                m_nStopStatus = Roads2DGeneratorStatus.CANCELLED;
+            } else if (m_bHasDeadline && System.nanoTime() - m_nDeadlineNanos >= 0) {
+                m_nStopStatus = Roads2DGeneratorStatus.TIMED_OUT;
+            }
         }
-        if (!m_config.isSetByUserAllowConnectUnunionRoadsTries()) {
-            m_config.setMaxAllowConnectUnunionRoadsTries(nBaseCoefForSafeWhile / 100, false);
+        return m_nStopStatus != null;
+    }
+
+    // a safe loop is over, a requested stop is reported by generate() without the map dump,
+    // the map is dumped only in debug mode
+    private boolean onSafeLoopOverMax(String sMethod, Roads2DGeneratorSafeLoop safeLoop) {
+        if (m_nStopStatus != null) {
+            return false;
         }
-        if (!m_config.isSetAsUserMaxAllowRemoveAllShortCiclesLoopTries()) {
-            m_config.setMaxAllowRemoveAllShortCiclesLoopTries(nBaseCoefForSafeWhile / 10, false);
+        if (m_config.isDebug()) {
+            printMap();
         }
+        m_sErrorMessage = "Roads2DGenerator::" + sMethod + "(), nSafeWhile = " + safeLoop.getLoopNumber();
+        System.err.println(m_sErrorMessage);
+        return false;
+    }
+
+    // stats of the last generate()
+    public Roads2DGeneratorGenerationStats getGenerationStats() {
+        return m_stats;
+    }
+
+    // called on every stage boundary of generate(), null - no listener
+    public void setStageListener(Roads2DGeneratorStageListener listener) {
+        m_stageListener = listener;
+    }
+
+    private boolean runStageWithStats(Roads2DGeneratorStage stage, int nStep) {
+        if (m_stageListener != null) {
+            m_stageListener.onStageBegin(stage, nStep);
+        }
+        long nLoopIterations = m_nCountLoopIterations;
+        long nCellsChanged = m_nCountCellsChanged;
+        long nFullScans = m_nCountFullScans;
+        long nStartTime = System.nanoTime();
+        boolean bSuccess = runStage(stage);
+        Roads2DGeneratorStageStats stats = new Roads2DGeneratorStageStats(
+            stage,
+            nStep,
+            bSuccess,
+            System.nanoTime() - nStartTime,
+            m_nCountLoopIterations - nLoopIterations,
+            m_nCountCellsChanged - nCellsChanged,
+            m_nCountFullScans - nFullScans
+        );
+        m_stats.addStage(stats);
+        if (m_stageListener != null) {
+            m_stageListener.onStageEnd(stats);
+        }
+        return bSuccess;
+    }
+
+    // stages of generate() in the order of execution
+    private static final Roads2DGeneratorStage[] PIPELINE = {
+        // Initial generation steps
+        Roads2DGeneratorStage.RANDOM_INIT_POINTS,
+        Roads2DGeneratorStage.MOVE_DIAGONAL_TAILS,
+        Roads2DGeneratorStage.CONNECT_SINGLE_POINTS,
+        Roads2DGeneratorStage.REMOVE_SINGLE_POINTS,
+        Roads2DGeneratorStage.REMOVE_RAMES,
+        Roads2DGeneratorStage.CONNECT_ALL_CLOSE_POINTS,
+        Roads2DGeneratorStage.REMOVE_ALL_SHORT_CICLES,
+        Roads2DGeneratorStage.REMOVE_RAMES,
+        Roads2DGeneratorStage.MOVE_DIAGONAL_TAILS,
+        Roads2DGeneratorStage.TRY_CONNECT_DEADLOCKS,
+        // commented: moveDiagonalTailsLoop()
+        Roads2DGeneratorStage.REMOVE_ALL_SHORT_CICLES,
+        Roads2DGeneratorStage.REMOVE_RAMES,
+        Roads2DGeneratorStage.MOVE_DIAGONAL_TAILS,
+        Roads2DGeneratorStage.REMOVE_DEADLOCKS,
+        Roads2DGeneratorStage.REMOVE_SINGLE_POINTS,
+        Roads2DGeneratorStage.REMOVE_RAMES,
+        Roads2DGeneratorStage.CONNECT_UNUNION_ROADS,
+        Roads2DGeneratorStage.REMOVE_DEADLOCKS,
+        Roads2DGeneratorStage.REMOVE_SINGLE_POINTS,
+        Roads2DGeneratorStage.REMOVE_RAMES,
+    };
+
+    // state before the first stage of generate()
+    void beginGenerate() {
+        applyDefaultTries();
 
         m_sErrorMessage = "";
-        m_random.setInitSeed(m_config.getSeedInitRandom());
+        resetRandom();
 
         resetMap();
         initPresets();
+    }
 
-        // Initial generation steps
-        if (!randomInitPoints()) {
-            return false;
+    // runs stages of generate() before the first occurrence of the stage (all stages if there is no such one)
+    boolean runPipelineUntil(Roads2DGeneratorStage stageStop) {
+        for (Roads2DGeneratorStage stage : PIPELINE) {
+            if (stage == stageStop) {
+                break;
+            }
+            if (!runStage(stage)) {
+                return false;
+            }
         }
-        // if (true) {
-        //     printMap();
-        //     return false;
-        // }
+        return true;
+    }
 
-        if (!moveDiagonalTailsLoop()) {
-            return false;
+    // false if generation failed, see getErrorMessage()
+    boolean runStage(Roads2DGeneratorStage stage) {
+        switch (stage) {
+            case RANDOM_INIT_POINTS:
+                return randomInitPoints();
+            case MOVE_DIAGONAL_TAILS:
+                return moveDiagonalTailsLoop();
+            case CONNECT_SINGLE_POINTS:
+                return connectSinglePointsLoop();
+            case REMOVE_SINGLE_POINTS:
+                removeSinglePoints();
+                return true;
+            case REMOVE_RAMES:
+                removeRames();
+                return true;
+            case CONNECT_ALL_CLOSE_POINTS:
+                connectAllClosePoints();
+                return true;
+            case REMOVE_ALL_SHORT_CICLES:
+                return removeAllShortCiclesLoop();
+            case TRY_CONNECT_DEADLOCKS:
+                tryConnectDeadlocksLoop();
+                return true;
+            case REMOVE_DEADLOCKS:
+                removeDeadlocksLoop();
+                return true;
+            case CONNECT_UNUNION_ROADS:
+                return connectUnunionRoads();
         }
+        return false;
+    }
 
+    private boolean connectSinglePointsLoop() {
         // TODO safecicle
         boolean bAgain = true;
         while (bAgain) {
+            if (isStopRequested()) {
+                return false;
+            }
             List<Roads2DGeneratorPoint> vPoints = findSinglePoints();
             if (vPoints.size() <= 1) {
                 bAgain = false;
@@ -563,42 +2237,471 @@ public class Roads2DGenerator {
                 return false;
             }
         }
-
-        removeSinglePoints();
-        removeRames();
-        connectAllClosePoints();
-
-        if (!removeAllShortCiclesLoop()) {
-            return false;
+        return true;
+    }
+
+    // Tiles are generated separately (see Roads2DGeneratorTiled) and placed on the map of this generator,
+    // then the seams between neighbour tiles are connected and cleaned up.
+    // Every tile is a finished map, only 2x2 blocks and 3x3 windows over a seam see a new neighbourhood,
+    // so the diagonal tails worklist starts from the blocks on the seams (and the cells changed by seam connections).
+    // The cellular passes stay full-map: they are bit-parallel and cost a few ms even on 2048x2048.
+    // vTileXs / vTileYs - borders of tile columns / rows (first is 0, last is width / height),
+    // vTileMaps - tile maps row by row
+    boolean stitchTiles(int[] vTileXs, int[] vTileYs, List<Roads2DGeneratorBitGrid> vTileMaps) {
+        beginGenerate();
+
+        int nTilesX = vTileXs.length - 1;
+        int nTilesY = vTileYs.length - 1;
+        for (int ty = 0; ty < nTilesY; ty++) {
+            for (int tx = 0; tx < nTilesX; tx++) {
+                m_vPixelMap.orGrid(vTileMaps.get(ty * nTilesX + tx), vTileXs[tx], vTileYs[ty]);
+            }
+        }
+        resetCellTracking();
+        markSeamBlocksDirty(vTileXs, vTileYs);
+
+        // one connection across every seam, near to a random point of the seam
+        for (int ty = 0; ty < nTilesY; ty++) {
+            for (int tx = 0; tx < nTilesX; tx++) {
+                if (tx + 1 < nTilesX) {
+                    int nSeamX = vTileXs[tx + 1];
+                    int nSeamY = vTileYs[ty] + 1 + m_random.getNextRandom() % Math.max(vTileYs[ty + 1] - vTileYs[ty] - 2, 1);
+                    connectSeam(
+                        findClosestRoadPoint(vTileXs[tx], vTileYs[ty], nSeamX - 1, vTileYs[ty + 1] - 1, nSeamX - 1, nSeamY),
+                        findClosestRoadPoint(nSeamX, vTileYs[ty], vTileXs[tx + 2] - 1, vTileYs[ty + 1] - 1, nSeamX, nSeamY)
+                    );
+                }
+                if (ty + 1 < nTilesY) {
+                    int nSeamY = vTileYs[ty + 1];
+                    int nSeamX = vTileXs[tx] + 1 + m_random.getNextRandom() % Math.max(vTileXs[tx + 1] - vTileXs[tx] - 2, 1);
+                    connectSeam(
+                        findClosestRoadPoint(vTileXs[tx], vTileYs[ty], vTileXs[tx + 1] - 1, nSeamY - 1, nSeamX, nSeamY - 1),
+                        findClosestRoadPoint(vTileXs[tx], nSeamY, vTileXs[tx + 1] - 1, vTileYs[ty + 2] - 1, nSeamX, nSeamY)
+                    );
+                }
+            }
+        }
+
+        if (!moveDiagonalTailsLoop()) {
+            return false;
+        }
+        if (!removeAllShortCiclesLoop()) {
+            return false;
+        }
+        removeRames();
+        if (!moveDiagonalTailsLoop()) {
+            return false;
+        }
+        removeDeadlocksLoop();
+        removeSinglePoints();
+        removeRames();
+
+        // tiles which are still apart, usually there are none and a count over row runs is much cheaper than labelling
+        if (countRoadComponents() > 1 && !connectUnunionRoads()) {
+            return false;
+        }
+        removeDeadlocksLoop();
+        removeSinglePoints();
+        removeRames();
+        return true;
+    }
+
+    private void connectSeam(Roads2DGeneratorPoint p0, Roads2DGeneratorPoint p1) {
+        if (p0 != null && p1 != null) {
+            connectPoints(p0, p1);
+        }
+    }
+
+    // closest (manhattan) road cell to (x, y) inside of the rectangle, null if there are no roads
+    // A point at a distance up to SEAM_SEARCH_RADIUS is the closest one in the whole rectangle,
+    // so the small window around (x, y) is searched first (in the same order, so ties are resolved the same way).
+    private Roads2DGeneratorPoint findClosestRoadPoint(int x_start, int y_start, int x_end, int y_end, int x, int y) {
+        Roads2DGeneratorPoint found = findClosestRoadPointIn(
+            Math.max(x_start, x - SEAM_SEARCH_RADIUS), Math.max(y_start, y - SEAM_SEARCH_RADIUS),
+            Math.min(x_end, x + SEAM_SEARCH_RADIUS), Math.min(y_end, y + SEAM_SEARCH_RADIUS), x, y);
+        if (found != null && Math.abs(found.getX() - x) + Math.abs(found.getY() - y) <= SEAM_SEARCH_RADIUS) {
+            return found;
+        }
+        return findClosestRoadPointIn(x_start, y_start, x_end, y_end, x, y);
+    }
+
+    private static final int SEAM_SEARCH_RADIUS = 16;
+
+    // only the blocks which lie on a seam (they were border blocks of the tiles or cross the seam) have to be checked
+    private void markSeamBlocksDirty(int[] vTileXs, int[] vTileYs) {
+        int nWidth = m_vPixelMap.getWidth();
+        int nHeight = m_vPixelMap.getHeight();
+        m_dirtyDiagonalTailsNext.clear();
+        for (int i = 1; i < vTileXs.length - 1; i++) {
+            m_dirtyDiagonalTailsNext.set((vTileXs[i] - 1) * nHeight, (vTileXs[i] + 1) * nHeight);
+        }
+        for (int i = 1; i < vTileYs.length - 1; i++) {
+            for (int x = 0; x < nWidth; x++) {
+                m_dirtyDiagonalTailsNext.set(x * nHeight + vTileYs[i] - 1, x * nHeight + vTileYs[i] + 1);
+            }
+        }
+    }
+
+    // 4-connected components of all road cells: runs of road cells in a row are joined with overlapping runs
+    // of the previous row, words are scanned for runs, so it is much cheaper than findConnectedComponents()
+    private int countRoadComponents() {
+        int nHeight = m_vPixelMap.getHeight();
+        int nMaxRuns = m_vPixelMap.getWidth() / 2 + 1;
+        int[] vPrevStart = new int[nMaxRuns];
+        int[] vPrevEnd = new int[nMaxRuns];
+        int[] vPrevLabel = new int[nMaxRuns];
+        int[] vStart = new int[nMaxRuns];
+        int[] vEnd = new int[nMaxRuns];
+        int[] vLabel = new int[nMaxRuns];
+        int[] vParent = new int[1024];
+        int nLabels = 0;
+        int nComponents = 0;
+        int nPrevRuns = 0;
+        for (int y = 0; y < nHeight; y++) {
+            int nRuns = collectRoadRuns(y, vStart, vEnd);
+            int j = 0;
+            for (int i = 0; i < nRuns; i++) {
+                if (nLabels == vParent.length) {
+                    vParent = Arrays.copyOf(vParent, nLabels * 2);
+                }
+                int nLabel = nLabels++;
+                vParent[nLabel] = nLabel;
+                vLabel[i] = nLabel;
+                nComponents++;
+                while (j < nPrevRuns && vPrevEnd[j] < vStart[i]) {
+                    j++;
+                }
+                for (int k = j; k < nPrevRuns && vPrevStart[k] <= vEnd[i]; k++) {
+                    int nRoot1 = findRunRoot(vParent, nLabel);
+                    int nRoot2 = findRunRoot(vParent, vPrevLabel[k]);
+                    if (nRoot1 != nRoot2) {
+                        vParent[nRoot1] = nRoot2;
+                        nComponents--;
+                    }
+                }
+            }
+            int[] vTmp = vPrevStart;
+            vPrevStart = vStart;
+            vStart = vTmp;
+            vTmp = vPrevEnd;
+            vPrevEnd = vEnd;
+            vEnd = vTmp;
+            vTmp = vPrevLabel;
+            vPrevLabel = vLabel;
+            vLabel = vTmp;
+            nPrevRuns = nRuns;
+        }
+        return nComponents;
+    }
+
+    private static int findRunRoot(int[] vParent, int nLabel) {
+        while (vParent[nLabel] != nLabel) {
+            vParent[nLabel] = vParent[vParent[nLabel]]; // path halving
+            nLabel = vParent[nLabel];
+        }
+        return nLabel;
+    }
+
+    // runs of road cells of the row y, bounds are inclusive; returns the count of runs
+    private int collectRoadRuns(int y, int[] vStart, int[] vEnd) {
+        int nRuns = 0;
+        int nRunStart = -1;
+        for (int w = 0; w < m_vPixelMap.getWordsPerRow(); w++) {
+            long word = m_vPixelMap.getWord(w, y);
+            int nBit = 0;
+            while (nBit < 64) {
+                if (nRunStart < 0) {
+                    long nRest = word >>> nBit;
+                    if (nRest == 0) {
+                        break;
+                    }
+                    nBit += Long.numberOfTrailingZeros(nRest);
+                    nRunStart = (w << 6) + nBit;
+                }
+                long nEmpty = ~word >>> nBit;
+                if (nEmpty == 0) {
+                    break; // the run goes on in the next word
+                }
+                nBit += Long.numberOfTrailingZeros(nEmpty);
+                vStart[nRuns] = nRunStart;
+                vEnd[nRuns] = (w << 6) + nBit - 1;
+                nRuns++;
+                nRunStart = -1;
+            }
+        }
+        if (nRunStart >= 0) {
+            vStart[nRuns] = nRunStart;
+            vEnd[nRuns] = m_vPixelMap.getWidth() - 1;
+            nRuns++;
+        }
+        return nRuns;
+    }
+
+    private Roads2DGeneratorPoint findClosestRoadPointIn(int x_start, int y_start, int x_end, int y_end, int x, int y) {
+        Roads2DGeneratorPoint found = null;
+        int nDist = Integer.MAX_VALUE;
+        for (int x0 = x_start; x0 <= x_end; x0++) {
+            for (int y0 = y_start; y0 <= y_end; y0++) {
+                int nNewDist = Math.abs(x0 - x) + Math.abs(y0 - y);
+                if (nNewDist < nDist && m_vPixelMap.get(x0, y0)) {
+                    nDist = nNewDist;
+                    found = new Roads2DGeneratorPoint(x0, y0);
+                }
+            }
+        }
+        return found;
+    }
+
+    // Regenerates roads inside of the window (bounds are inclusive and clipped to inner cells of the map) with the seed,
+    // the rest of the map is kept. The ring of cells around the window is a fixed frame: the window is generated
+    // like a small map of its own with the frame as its border (density, modes and presets of the config are used).
+    // Roads which cross the frame keep their first cell inside and are connected with the new roads, so
+    // the frame gets no dead ends and the map stays connected. Costs about generate() of a map of the window size.
+    // false if the window could not be generated, the map is not changed then, see getErrorMessage()
+    public boolean regenerateRegion(int x_start, int y_start, int x_end, int y_end, int nSeed) {
+        m_sErrorMessage = "";
+        int nWidth = m_vPixelMap.getWidth();
+        int nHeight = m_vPixelMap.getHeight();
+        int x0 = Math.max(Math.min(x_start, x_end), 1);
+        int x1 = Math.min(Math.max(x_start, x_end), nWidth - 2);
+        int y0 = Math.max(Math.min(y_start, y_end), 1);
+        int y1 = Math.min(Math.max(y_start, y_end), nHeight - 2);
+        if (x0 > x1 || y0 > y1) {
+            m_sErrorMessage = "Roads2DGenerator::regenerateRegion(), window has no inner cells of the map";
+            System.err.println(m_sErrorMessage);
+            return false;
+        }
+
+        // the window with the frame, (0, 0) is the map cell (x0 - 1, y0 - 1)
+        int nRegionWidth = x1 - x0 + 3;
+        int nRegionHeight = y1 - y0 + 3;
+        Roads2DGeneratorBitGrid roads = new Roads2DGeneratorBitGrid(nRegionWidth, nRegionHeight);
+        roads.orGrid(m_vPixelMap, 1 - x0, 1 - y0);
+
+        // roads of the frame and the cells inside where they cross it are kept as they are
+        Roads2DGeneratorBitGrid fixedRoads = new Roads2DGeneratorBitGrid(nRegionWidth, nRegionHeight);
+        List<Roads2DGeneratorPoint> vEntries = new ArrayList<>();
+        for (int x = 1; x < nRegionWidth - 1; x++) {
+            addFrameRoad(roads, fixedRoads, vEntries, x, 0, x, 1);
+            addFrameRoad(roads, fixedRoads, vEntries, x, nRegionHeight - 1, x, nRegionHeight - 2);
+        }
+        for (int y = 1; y < nRegionHeight - 1; y++) {
+            addFrameRoad(roads, fixedRoads, vEntries, 0, y, 1, y);
+            addFrameRoad(roads, fixedRoads, vEntries, nRegionWidth - 1, y, nRegionWidth - 2, y);
+        }
+        fixedRoads.set(0, 0, roads.get(0, 0));
+        fixedRoads.set(nRegionWidth - 1, 0, roads.get(nRegionWidth - 1, 0));
+        fixedRoads.set(0, nRegionHeight - 1, roads.get(0, nRegionHeight - 1));
+        fixedRoads.set(nRegionWidth - 1, nRegionHeight - 1, roads.get(nRegionWidth - 1, nRegionHeight - 1));
+
+        Roads2DGeneratorBitGrid fixed = new Roads2DGeneratorBitGrid(nRegionWidth, nRegionHeight);
+        fixed.orGrid(m_cachePresets, 1 - x0, 1 - y0);
+        fixed.orGrid(fixedRoads, 0, 0);
+        fixed.fillBorder(true);
+
+        Roads2DGenerator region = new Roads2DGenerator();
+        region.getConfig()
+            .setWidth(nRegionWidth)
+            .setHeight(nRegionHeight)
+            .setDensity(m_config.getDensity())
+            .setMoveDiagonalTailsMode(m_config.getMoveDiagonalTailsMode())
+            .setCellularMode(m_config.getCellularMode())
+            .setInitPointsMode(m_config.getInitPointsMode())
+            .setRandomMode(m_config.getRandomMode())
+            .setRandomStream(m_config.getRandomStream())
+            .setDebug(m_config.isDebug())
+            .setPresetExcludesMask(fixed)
+        ;
+        // small windows fail more often than whole maps, every attempt uses the next derived seed
+        boolean bSuccess = false;
+        for (int nAttempt = 0; nAttempt < REGENERATE_REGION_ATTEMPTS && !bSuccess; nAttempt++) {
+            region.getConfig().setSeedInitRandom(deriveSeed(nSeed, nAttempt));
+            bSuccess = region.generateRegion(fixedRoads, vEntries);
+        }
+        if (!bSuccess) {
+            m_sErrorMessage = "Roads2DGenerator::regenerateRegion(), could not generate the window in "
+                + REGENERATE_REGION_ATTEMPTS + " attempts, last error: " + region.getErrorMessage();
+            System.err.println(m_sErrorMessage);
+            return false;
+        }
+
+        Roads2DGeneratorBitGrid result = region.getPixelMapGrid();
+        for (int x = x0; x <= x1; x++) {
+            for (int y = y0; y <= y1; y++) {
+                boolean bValue = result.get(x - x0 + 1, y - y0 + 1);
+                if (m_vPixelMap.get(x, y) != bValue) {
+                    m_vPixelMap.set(x, y, bValue);
+                    onCellChanged(x, y);
+                }
+            }
+        }
+        return true;
+    }
+
+    private static final int REGENERATE_REGION_ATTEMPTS = 8;
+
+    // the frame cell (fx, fy) and the cell (x, y) inside of the window next to it
+    private void addFrameRoad(Roads2DGeneratorBitGrid roads, Roads2DGeneratorBitGrid fixedRoads,
+                              List<Roads2DGeneratorPoint> vEntries, int fx, int fy, int x, int y) {
+        if (!roads.get(fx, fy)) {
+            return;
+        }
+        fixedRoads.set(fx, fy, true);
+        if (roads.get(x, y)) {
+            fixedRoads.set(x, y, true);
+            vEntries.add(new Roads2DGeneratorPoint(x, y));
+        }
+    }
+
+    // Map of regenerateRegion() or a chunk of Roads2DGeneratorChunkProvider: the border and fixedRoads are preset
+    // in the config, so they are never changed. vEntries - fixed cells inside where roads cross the border.
+    // Succeeds only if all new roads and all entries are connected.
+    boolean generateRegion(Roads2DGeneratorBitGrid fixedRoads, List<Roads2DGeneratorPoint> vEntries) {
+        beginGenerate();
+        m_vPixelMap.orGrid(fixedRoads, 0, 0);
+        resetCellTracking();
+        for (Roads2DGeneratorStage stage : PIPELINE) {
+            if (!runStage(stage)) {
+                return false;
+            }
+        }
+
+        // components of fixed roads only are not connected by the pipeline
+        for (Roads2DGeneratorPoint entry : vEntries) {
+            if (!connectEntry(entry)) {
+                return false;
+            }
+        }
+        if (!connectUnunionRoads()) {
+            return false;
+        }
+        removeDeadlocksLoop();
+        removeSinglePoints();
+        removeRames();
+        for (Roads2DGeneratorPoint entry : vEntries) {
+            if (isDeadlockPoint(entry.getX(), entry.getY())) {
+                m_sErrorMessage = "Roads2DGenerator::generateRegion(), road into the window at "
+                    + entry.getX() + "," + entry.getY() + " is not connected";
+                return false;
+            }
+        }
+        if (!isConnectedWithEntries(vEntries)) {
+            m_sErrorMessage = "Roads2DGenerator::generateRegion(), roads of the window are not connected";
+            return false;
+        }
+        return true;
+    }
+
+    // one component has all not fixed roads and all entries
+    private boolean isConnectedWithEntries(List<Roads2DGeneratorPoint> vEntries) {
+        int nCount = 0;
+        for (Roads2DGeneratorConnectedComponent comp : findConnectedComponents()) {
+            boolean bCounted = !getConnectablePoints(comp).isEmpty();
+            for (int i = 0; i < vEntries.size() && !bCounted; i++) {
+                bCounted = comp.hasPoint(vEntries.get(i));
+            }
+            if (bCounted) {
+                nCount++;
+            }
+        }
+        return nCount <= 1;
+    }
+
+    // Connects the entry with the closest cell of the biggest component (with new roads if there are any).
+    // The line goes away from the frame first, cells along the frame next to its roads would make 2x2 blocks.
+    private boolean connectEntry(Roads2DGeneratorPoint entry) {
+        int x = entry.getX();
+        int y = entry.getY();
+        int nHeight = m_vPixelMap.getHeight();
+        Roads2DGeneratorConnectedComponent biggest = null;
+        boolean bBiggestHasFree = false;
+        for (Roads2DGeneratorConnectedComponent comp : findConnectedComponents()) {
+            if (comp.hasPoint(entry)) {
+                continue;
+            }
+            boolean bHasFree = !getConnectablePoints(comp).isEmpty();
+            if (biggest == null || (bHasFree && !bBiggestHasFree)
+                || (bHasFree == bBiggestHasFree && comp.getSize() > biggest.getSize())) {
+                biggest = comp;
+                bBiggestHasFree = bHasFree;
+            }
+        }
+        if (biggest == null || biggest.hasPoint(entry)) {
+            return true;
+        }
+        Roads2DGeneratorPoint target = null;
+        int nDist = Integer.MAX_VALUE;
+        for (Roads2DGeneratorPoint p : biggest.getPoints()) {
+            if (isBorder(p.getX(), p.getY())) {
+                continue;
+            }
+            int nNewDist = Math.abs(p.getX() - x) + Math.abs(p.getY() - y);
+            if (nNewDist < nDist) {
+                nDist = nNewDist;
+                target = p;
+            }
+        }
+        if (target == null) {
+            return true;
         }
-        removeRames();
-        if (!moveDiagonalTailsLoop()) {
-            return false;
+        if ((y == 1 && m_vPixelMap.get(x, 0)) || (y == nHeight - 2 && m_vPixelMap.get(x, nHeight - 1))) {
+            drawLineByX(y, target.getY(), x);
+            drawLineByY(x, target.getX(), target.getY());
+        } else {
+            drawLineByY(x, target.getX(), y);
+            drawLineByX(y, target.getY(), target.getX());
         }
+        return moveDiagonalTailsLoop();
+    }
 
-        tryConnectDeadlocksLoop();
-        // commented: moveDiagonalTailsLoop()
-
-        if (!removeAllShortCiclesLoop()) {
-            return false;
-        }
-        removeRames();
+    // replaces the pixel map by the grid (not a copy), width and height of the config are taken from it;
+    // after that the map can be exported or changed by the stages like a generated one
+    public void loadPixelMap(Roads2DGeneratorBitGrid grid) {
+        m_config.setWidth(grid.getWidth()).setHeight(grid.getHeight());
+        applyDefaultTries();
+        m_sErrorMessage = "";
+        resetRandom();
+        m_vPixelMap = grid;
+        resetCellTracking();
+        initPresets();
+    }
 
-        if (!moveDiagonalTailsLoop()) {
+    // width, height, seed and density of the config are taken from the file, see Roads2DGeneratorBinaryMap
+    public boolean loadFromBinaryMapFile(String sFilepath) {
+        try (Roads2DGeneratorBinaryMap.Roads2DGeneratorBinaryMapReader reader = Roads2DGeneratorBinaryMap.open(sFilepath)) {
+            Roads2DGeneratorBitGrid grid = new Roads2DGeneratorBitGrid(reader.getWidth(), reader.getHeight());
+            long[] vRow = new long[grid.getWordsPerRow()];
+            for (int y = 0; y < grid.getHeight(); y++) {
+                reader.readRow(y, vRow);
+                for (int w = 0; w < vRow.length; w++) {
+                    grid.setWord(w, y, vRow[w]);
+                }
+            }
+            m_config.setSeedInitRandom(reader.getSeed()).setDensity(reader.getDensity());
+            loadPixelMap(grid);
+            return true;
+        } catch (IOException e) {
+            m_sErrorMessage = "File read error: " + e.getMessage();
+            System.err.println(m_sErrorMessage);
             return false;
         }
-        removeDeadlocksLoop();
-        removeSinglePoints();
-        removeRames();
+    }
 
-        if (!connectUnunionRoads()) {
+    // bRunLength - rows are run-length encoded when it is shorter, see Roads2DGeneratorBinaryMap
+    public boolean exportLikeBinaryMapToFile(String sFilepath, boolean bRunLength) {
+        try {
+            Roads2DGeneratorBinaryMap.write(this, sFilepath, bRunLength);
+            return true;
+        } catch (IOException e) {
+            m_sErrorMessage = "File write error: " + e.getMessage();
+            System.err.println(m_sErrorMessage);
             return false;
         }
-        removeDeadlocksLoop();
-        removeSinglePoints();
-        removeRames();
+    }
 
-        return true;
+    // not a copy, for the exporters and generators in this package
+    Roads2DGeneratorBitGrid getPixelMapGrid() {
+        return m_vPixelMap;
     }
 
     public void printMap() {
@@ -606,7 +2709,7 @@ public class Roads2DGenerator {
         for (int y = 0; y < m_config.getHeight(); y++) {
             StringBuilder sLine = new StringBuilder();
             for (int x = 0; x < m_config.getWidth(); x++) {
-                if (m_vPixelMap.get(x).get(y)) {
+                if (m_vPixelMap.get(x, y)) {
                     if (isWindows) {
                         sLine.append((char)219).append((char)219);
                     } else {
@@ -625,25 +2728,53 @@ public class Roads2DGenerator {
     }
 
     public List<List<String>> exportLikeTable() {
+        int nWidth = m_config.getWidth();
+        byte[] vCodes = new byte[nWidth];
         List<List<String>> vResult = new ArrayList<>();
         for (int y = 0; y < m_config.getHeight(); y++) {
-            List<String> vLine = new ArrayList<>();
-            for (int x = 0; x < m_config.getWidth(); x++) {
-                if (m_vPixelMap.get(x).get(y)) {
-                    vLine.add(getRoadPart(x, y));
-                } else {
-                    vLine.add("");
-                }
+            fillRoadPartCodes(0, y, nWidth, vCodes, 0);
+            List<String> vLine = new ArrayList<>(nWidth);
+            for (int x = 0; x < nWidth; x++) {
+                vLine.add(Roads2DGeneratorRoadPart.fromCode(vCodes[x]).getName());
             }
             vResult.add(vLine);
         }
         return vResult;
     }
 
+    // tile codes (Roads2DGeneratorRoadPart.getCode()) of the whole map, row by row
+    public byte[] exportLikeTileCodes() {
+        int nWidth = m_config.getWidth();
+        int nHeight = m_config.getHeight();
+        byte[] vCodes = new byte[nWidth * nHeight];
+        exportLikeTileCodes(0, 0, nWidth, nHeight, vCodes, 0, nWidth);
+        return vCodes;
+    }
+
+    // tile codes of the region into the caller buffer: cell (x0 + i, y0 + j) goes to vOut[nOffset + j * nStride + i];
+    // the region can be partly or fully outside of the map, such cells are EMPTY
+    public void exportLikeTileCodes(int x0, int y0, int nWidth, int nHeight, byte[] vOut, int nOffset, int nStride) {
+        for (int j = 0; j < nHeight; j++) {
+            fillRoadPartCodes(x0, y0 + j, nWidth, vOut, nOffset + j * nStride);
+        }
+    }
+
+    // EMPTY outside of the map
+    public Roads2DGeneratorRoadPart getRoadPartType(int x, int y) {
+        if (x < 0 || x >= m_config.getWidth() || y < 0 || y >= m_config.getHeight() || !m_vPixelMap.get(x, y)) {
+            return Roads2DGeneratorRoadPart.EMPTY;
+        }
+        return ROAD_PART_BY_MASK[getNeighboursMask(x, y)];
+    }
+
     public List<List<Boolean>> exportLikePixelMap() {
-        List<List<Boolean>> copy = new ArrayList<>();
-        for (List<Boolean> row : m_vPixelMap) {
-            copy.add(new ArrayList<>(row));
+        List<List<Boolean>> copy = new ArrayList<>(m_vPixelMap.getWidth());
+        for (int x = 0; x < m_vPixelMap.getWidth(); x++) {
+            List<Boolean> column = new ArrayList<>(m_vPixelMap.getHeight());
+            for (int y = 0; y < m_vPixelMap.getHeight(); y++) {
+                column.add(m_vPixelMap.get(x, y));
+            }
+            copy.add(column);
         }
         return copy;
     }
@@ -652,13 +2783,13 @@ public class Roads2DGenerator {
         Roads2DGeneratorGraph graph = new Roads2DGeneratorGraph();
         for (int x = 0; x < m_config.getWidth() - 1; x++) {
             for (int y = 0; y < m_config.getHeight() - 1; y++) {
-                if (m_vPixelMap.get(x).get(y)) {
+                if (m_vPixelMap.get(x, y)) {
                     int indexXY = graph.findOrAddPointGetIndex(new Roads2DGeneratorPoint(x, y));
-                    if (m_vPixelMap.get(x+1).get(y)) {
+                    if (m_vPixelMap.get(x+1, y)) {
                         int indexX1Y = graph.findOrAddPointGetIndex(new Roads2DGeneratorPoint(x+1, y));
                         graph.addConnection(indexXY, indexX1Y);
                     }
-                    if (m_vPixelMap.get(x).get(y+1)) {
+                    if (m_vPixelMap.get(x, y+1)) {
                         int indexXY1 = graph.findOrAddPointGetIndex(new Roads2DGeneratorPoint(x, y+1));
                         graph.addConnection(indexXY, indexXY1);
                     }
@@ -668,13 +2799,22 @@ public class Roads2DGenerator {
         return graph;
     }
 
+    public Roads2DGeneratorIndexedGraph exportLikeIndexedGraph() {
+        return new Roads2DGeneratorIndexedGraph(m_vPixelMap);
+    }
+
+    // bCorners - turns of roads are nodes too, then every edge is a straight line
+    public Roads2DGeneratorRoadNetwork exportLikeRoadNetwork(boolean bCorners) {
+        return new Roads2DGeneratorRoadNetwork(m_vPixelMap, bCorners);
+    }
+
     public String exportLikeJsonPixelMap() {
         StringBuilder jsonBuilder = new StringBuilder();
         jsonBuilder.append("{\n  \"roads2dgen_pixelmap\": [\n");
         for (int y = 0; y < m_config.getHeight(); y++) {
             jsonBuilder.append("    [");
             for (int x = 0; x < m_config.getWidth(); x++) {
-                jsonBuilder.append(m_vPixelMap.get(x).get(y) ? "1" : "0");
+                jsonBuilder.append(m_vPixelMap.get(x, y) ? "1" : "0");
                 if (x < m_config.getWidth() - 1) {
                     jsonBuilder.append(", ");
                 }
@@ -686,8 +2826,22 @@ public class Roads2DGenerator {
     }
 
     public boolean exportLikeJsonPixelMapToFile(String sFilepath) {
-        try (FileWriter writer = new FileWriter(sFilepath)) {
-            writer.write(exportLikeJsonPixelMap());
+        return exportLikeJsonPixelMapToFile(sFilepath, false);
+    }
+
+    // bGzip - the file is compressed with gzip (the name is not changed, add ".gz" yourself)
+    public boolean exportLikeJsonPixelMapToFile(String sFilepath, boolean bGzip) {
+        try {
+            if (bGzip) {
+                try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(Paths.get(sFilepath)), JSON_BUFFER_SIZE)) {
+                    exportLikeJsonPixelMap(out);
+                }
+            } else {
+                try (FileChannel channel = FileChannel.open(Paths.get(sFilepath),
+                        StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    exportLikeJsonPixelMap(channel);
+                }
+            }
             return true;
         } catch (IOException e) {
             m_sErrorMessage = "File write error: " + e.getMessage();
@@ -696,23 +2850,230 @@ public class Roads2DGenerator {
         }
     }
 
+    // the same bytes as exportLikeJsonPixelMap(), the stream is not closed
+    public void exportLikeJsonPixelMap(OutputStream out) throws IOException {
+        exportLikeJsonPixelMap(Channels.newChannel(out));
+        out.flush();
+    }
+
+    // the same bytes as exportLikeJsonPixelMap() written row by row through one buffer,
+    // memory does not depend on the height of the map; the channel is not closed
+    public void exportLikeJsonPixelMap(WritableByteChannel channel) throws IOException {
+        int nWidth = m_config.getWidth();
+        int nHeight = m_config.getHeight();
+        // "    [" + "0, " * (width - 1) + "0" + "],\n"
+        int nRowSize = 5 + Math.max(nWidth * 3 - 2, 0) + 3;
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(JSON_BUFFER_SIZE, nRowSize));
+        buffer.put("{\n  \"roads2dgen_pixelmap\": [\n".getBytes(StandardCharsets.US_ASCII));
+        for (int y = 0; y < nHeight; y++) {
+            if (buffer.remaining() < nRowSize) {
+                writeFully(channel, buffer);
+            }
+            buffer.put(JSON_ROW_BEGIN);
+            for (int x = 0; x < nWidth; x++) {
+                buffer.put(m_vPixelMap.get(x, y) ? (byte)'1' : (byte)'0');
+                if (x < nWidth - 1) {
+                    buffer.put(JSON_SEPARATOR);
+                }
+            }
+            buffer.put(y < nHeight - 1 ? JSON_ROW_END : JSON_LAST_ROW_END);
+        }
+        if (buffer.remaining() < JSON_END.length) {
+            writeFully(channel, buffer);
+        }
+        buffer.put(JSON_END);
+        writeFully(channel, buffer);
+    }
+
+    private static final int JSON_BUFFER_SIZE = 1 << 16;
+    private static final byte[] JSON_ROW_BEGIN = "    [".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] JSON_SEPARATOR = ", ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] JSON_ROW_END = "],\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] JSON_LAST_ROW_END = "]\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] JSON_END = "  ]\n}\n".getBytes(StandardCharsets.US_ASCII);
+
+    // writes everything from the buffer and clears it
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // Tries set by user or default ones, the config is not changed (it can be shared between generators)
+    private void applyDefaultTries() {
+        // Calculate base coefficient for safety limits
+        float num = m_config.getWidth() * m_config.getHeight();
+        int nBaseCoefForSafeWhile = (int)(num * m_config.getDensity() * 2.0f);
+
+        m_nMaxAllowInitPointsTries = m_config.isSetByUserMaxAllowInitPointsTries()
+            ? m_config.getMaxAllowInitPointsTries() : nBaseCoefForSafeWhile;
+        m_nMaxAllowMoveDiagonalTailsTries = m_config.isSetByUserMaxAllowMoveDiagonalTailsTries()
+            ? m_config.getMaxAllowMoveDiagonalTailsTries() : nBaseCoefForSafeWhile / 10;
+        m_nMaxAllowConnectUnunionRoadsTries = m_config.isSetByUserAllowConnectUnunionRoadsTries()
+            ? m_config.getMaxAllowConnectUnunionRoadsTries() : nBaseCoefForSafeWhile / 100;
+        m_nMaxAllowRemoveAllShortCiclesLoopTries = m_config.isSetAsUserMaxAllowRemoveAllShortCiclesLoopTries()
+            ? m_config.getMaxAllowRemoveAllShortCiclesLoopTries() : nBaseCoefForSafeWhile / 10;
+    }
+
+    // random source of the configured mode and stream, seeded by the config
+    private void resetRandom() {
+        switch (m_config.getRandomMode()) {
+            case SPLIT_MIX: {
+                Roads2DGeneratorSplitMixRandom random = new Roads2DGeneratorSplitMixRandom();
+                random.setInitSeed(m_config.getSeedInitRandom());
+                random.setStream(m_config.getRandomStream());
+                m_random = random;
+                break;
+            }
+            case XOROSHIRO: {
+                Roads2DGeneratorXoroshiroRandom random = new Roads2DGeneratorXoroshiroRandom();
+                random.setInitSeed(m_config.getSeedInitRandom());
+                random.setStream(m_config.getRandomStream());
+                m_random = random;
+                break;
+            }
+            default:
+                if (!(m_random instanceof Roads2DGeneratorPseudoRandom)) {
+                    m_random = new Roads2DGeneratorPseudoRandom();
+                }
+                m_random.setInitSeed(m_config.getSeedInitRandom());
+                break;
+        }
+    }
+
     private void resetMap() {
-        m_vPixelMap = new ArrayList<>(m_config.getWidth());
-        for (int x = 0; x < m_config.getWidth(); x++) {
-            List<Boolean> column = new ArrayList<>(m_config.getHeight());
-            for (int y = 0; y < m_config.getHeight(); y++) {
-                column.add(false);
+        if (m_vPixelMap != null
+            && m_vPixelMap.getWidth() == m_config.getWidth()
+            && m_vPixelMap.getHeight() == m_config.getHeight()) {
+            m_vPixelMap.clear();
+        } else {
+            m_vPixelMap = new Roads2DGeneratorBitGrid(m_config.getWidth(), m_config.getHeight());
+        }
+        resetCellTracking();
+    }
+
+    // rebuild everything what is kept up to date by onCellChanged() from the current pixel map
+    private void resetCellTracking() {
+        int nWidth = m_vPixelMap.getWidth();
+        int nHeight = m_vPixelMap.getHeight();
+        int nCells = nWidth * nHeight;
+        // every block has to be checked on the next moveDiagonalTails()
+        m_dirtyDiagonalTailsCurrent = new BitSet(nCells);
+        m_dirtyDiagonalTailsNext = new BitSet(nCells);
+        m_dirtyDiagonalTailsNext.set(0, nCells);
+        m_nDiagonalTailsScanPos = Integer.MAX_VALUE;
+
+        // only inner road cells can be deadlock or single points, 64 cells at once
+        m_deadlockPoints = new BitSet(nCells);
+        m_singlePoints = new BitSet(nCells);
+        for (int y = 1; y < nHeight - 1; y++) {
+            for (int w = 0; w < m_vPixelMap.getWordsPerRow(); w++) {
+                setTrackedPoints(m_deadlockPoints, getCellularRuleWord(RULE_DEADLOCK, w, y), w, y);
+                setTrackedPoints(m_singlePoints, getCellularRuleWord(RULE_SINGLE, w, y), w, y);
             }
-            m_vPixelMap.add(column);
         }
     }
 
+    private void setTrackedPoints(BitSet points, long nMask, int w, int y) {
+        int nHeight = m_vPixelMap.getHeight();
+        while (nMask != 0) {
+            int x = (w << 6) + Long.numberOfTrailingZeros(nMask);
+            nMask &= nMask - 1;
+            points.set(x * nHeight + y);
+        }
+    }
+
+    private void updateTrackedPoint(int x, int y) {
+        int nPos = x * m_vPixelMap.getHeight() + y;
+        m_deadlockPoints.set(nPos, isDeadlockPoint(x, y));
+        m_singlePoints.set(nPos, isSinglePoint(x, y));
+    }
+
     private void initPresets() {
-        m_cachePresets.clear();
-        Map<Roads2DGeneratorPair<Integer, Integer>, Boolean> presets = m_config.getPresets();
-        for (Map.Entry<Roads2DGeneratorPair<Integer, Integer>, Boolean> entry : presets.entrySet()) {
-            m_cachePresets.add(entry.getKey().hashCode());
+        int nWidth = m_config.getWidth();
+        int nHeight = m_config.getHeight();
+        if (m_cachePresets.getWidth() == nWidth && m_cachePresets.getHeight() == nHeight) {
+            m_cachePresets.clear();
+        } else {
+            m_cachePresets = new Roads2DGeneratorBitGrid(nWidth, nHeight);
+        }
+        m_config.fillPresets(m_cachePresets);
+    }
+
+    // 9-bit neighbourhood code of a cell: bit (j * 3 + i) is the cell (x - 1 + i, y - 1 + j), the cell itself is bit 4;
+    // NEIGHBOURHOOD[code] answers all predicates of inner cells (around count in the low bits and NB_* flags)
+    private static final int NB_AROUND_COUNT = 0xF;
+    private static final int NB_RAME = 1 << 4;
+    private static final int NB_ALLOWED = 1 << 5; // no full 2x2 block if the cell is set
+    private static final int NB_SINGLE = 1 << 6;
+    private static final int NB_DEADLOCK = 1 << 7;
+    private static final int NB_CAN_CONNECT_CLOSE = 1 << 8;
+    private static final int NB_CONNECT_CLOSE_POINT = 1 << 9; // can connect close points and around count < 6
+    private static final int NB_SHORT_CICLE = 1 << 10; // empty cell with all 8 neighbours set
+    private static final short[] NEIGHBOURHOOD = new short[512];
+    static {
+        for (int nCode = 0; nCode < 512; nCode++) {
+            boolean b00 = (nCode & (1 << 0)) != 0;
+            boolean b10 = (nCode & (1 << 1)) != 0;
+            boolean b20 = (nCode & (1 << 2)) != 0;
+            boolean b01 = (nCode & (1 << 3)) != 0;
+            boolean b11 = (nCode & (1 << 4)) != 0;
+            boolean b21 = (nCode & (1 << 5)) != 0;
+            boolean b02 = (nCode & (1 << 6)) != 0;
+            boolean b12 = (nCode & (1 << 7)) != 0;
+            boolean b22 = (nCode & (1 << 8)) != 0;
+            int nAround = Integer.bitCount(nCode & ~(1 << 4));
+            int nCross = (b01 ? 1 : 0) + (b21 ? 1 : 0) + (b10 ? 1 : 0) + (b12 ? 1 : 0);
+
+            int nValue = nAround;
+            boolean bRame = b11 && (
+                (b00 && b01 && b02 && !b10 && !b12 && !b20 && !b21 && !b22) ||  // Top pattern
+                (b20 && b21 && b22 && !b00 && !b01 && !b02 && !b10 && !b12) ||  // Bottom pattern
+                (b00 && b10 && b20 && !b02 && !b12 && !b22 && !b01 && !b21) ||  // Left pattern
+                (b02 && b12 && b22 && !b00 && !b10 && !b20 && !b01 && !b21));   // Right pattern
+            if (bRame) {
+                nValue |= NB_RAME;
+            }
+            // 2x2 blocks with the cell, the cell is set
+            boolean bFullBlock = (b00 && b10 && b01) || (b10 && b20 && b21) || (b01 && b02 && b12) || (b21 && b12 && b22);
+            if (!bFullBlock) {
+                nValue |= NB_ALLOWED;
+            }
+            if (b11 && nAround == 0) {
+                nValue |= NB_SINGLE;
+            }
+            if (b11 && nCross == 1) {
+                nValue |= NB_DEADLOCK;
+            }
+            boolean bCanConnect = !b11 && ((b12 && b10) || (b21 && b01));
+            if (bCanConnect) {
+                nValue |= NB_CAN_CONNECT_CLOSE;
+            }
+            if (bCanConnect && nAround < 6) {
+                nValue |= NB_CONNECT_CLOSE_POINT;
+            }
+            if (!b11 && nAround == 8) {
+                nValue |= NB_SHORT_CICLE;
+            }
+            NEIGHBOURHOOD[nCode] = (short)nValue;
+        }
+    }
+
+    // x, y must be an inner cell
+    private int getNeighbourhoodCode(int x, int y) {
+        return (int)(m_vPixelMap.getBits(x - 1, y - 1, 3)
+            | (m_vPixelMap.getBits(x - 1, y, 3) << 3)
+            | (m_vPixelMap.getBits(x - 1, y + 1, 3) << 6));
+    }
+
+    // code of (x, y + 1) from the code of (x, y): one row goes out, one row comes in
+    private int slideNeighbourhoodCode(int nCode, int x, int y) {
+        if (y + 2 >= m_vPixelMap.getHeight()) {
+            return nCode;
         }
+        return (nCode >>> 3) | (int)(m_vPixelMap.getBits(x - 1, y + 2, 3) << 6);
     }
 
     private boolean isBorder(int x, int y) {
@@ -721,30 +3082,14 @@ public class Roads2DGenerator {
     }
 
     private boolean isPreset(int x, int y) {
-        int mhash = x * 100000 + y;
-        return m_cachePresets.contains(mhash);
+        return m_cachePresets.get(x, y);
     }
 
     private boolean isRame(int x, int y) {
-        if (isBorder(x, y) || !m_vPixelMap.get(x).get(y)) {
+        if (isBorder(x, y)) {
             return false;
         }
-
-        // Get all 8 surrounding pixels
-        boolean b00 = m_vPixelMap.get(x-1).get(y-1);
-        boolean b01 = m_vPixelMap.get(x-1).get(y);
-        boolean b02 = m_vPixelMap.get(x-1).get(y+1);
-        boolean b10 = m_vPixelMap.get(x).get(y-1);
-        boolean b12 = m_vPixelMap.get(x).get(y+1);
-        boolean b20 = m_vPixelMap.get(x+1).get(y-1);
-        boolean b21 = m_vPixelMap.get(x+1).get(y);
-        boolean b22 = m_vPixelMap.get(x+1).get(y+1);
-
-        // Check for 4 possible ramé patterns
-        return (b00 && b01 && b02 && !b10 && !b12 && !b20 && !b21 && !b22) ||  // Top pattern
-            (b20 && b21 && b22 && !b00 && !b01 && !b02 && !b10 && !b12) ||  // Bottom pattern
-            (b00 && b10 && b20 && !b02 && !b12 && !b22 && !b01 && !b21) ||  // Left pattern
-            (b02 && b12 && b22 && !b00 && !b10 && !b20 && !b01 && !b21);   // Right pattern
+        return (NEIGHBOURHOOD[getNeighbourhoodCode(x, y)] & NB_RAME) != 0;
     }
 
     private boolean isEqual(List<Roads2DGeneratorPoint> vLeft, List<Roads2DGeneratorPoint> vRight) {
@@ -766,41 +3111,29 @@ public class Roads2DGenerator {
         if (isBorder(x, y)) {
             return false;
         }
-
-        x = x - 1;
-        y = y - 1;
-
-        for (int x0 = 0; x0 < 2; x0++) {
-            for (int y0 = 0; y0 < 2; y0++) {
-                boolean b1 = m_vPixelMap.get(x + x0).get(y + y0);
-                boolean b2 = m_vPixelMap.get(x + x0 + 1).get(y + y0);
-                boolean b3 = m_vPixelMap.get(x + x0 + 1).get(y + y0 + 1);
-                boolean b4 = m_vPixelMap.get(x + x0).get(y + y0 + 1);
-
-                if (b1 && b2 && b3 && b4) {
-                    return false;
-                }
-            }
-        }
-        return true;
+        return (NEIGHBOURHOOD[getNeighbourhoodCode(x, y)] & NB_ALLOWED) != 0;
     }
 
     private boolean isSinglePoint(int x, int y) {
-        if (isBorder(x, y) || !m_vPixelMap.get(x).get(y)) {
+        if (isBorder(x, y)) {
             return false;
         }
-        return getAroundCount(x, y) == 0;
+        return (NEIGHBOURHOOD[getNeighbourhoodCode(x, y)] & NB_SINGLE) != 0;
     }
 
     private boolean tryChangeToTrue(int x, int y) {
         if (isPreset(x, y)) {
             return false;
         }
-        m_vPixelMap.get(x).set(y, true);
+        boolean bWas = m_vPixelMap.get(x, y);
+        m_vPixelMap.set(x, y, true);
         if (!isAllowed(x, y)) {
-            m_vPixelMap.get(x).set(y, false);
+            m_vPixelMap.set(x, y, false);
             return false;
         }
+        if (!bWas) {
+            onCellChanged(x, y);
+        }
         return true;
     }
 
@@ -808,13 +3141,65 @@ public class Roads2DGenerator {
         if (isPreset(x, y)) {
             return false;
         }
-        m_vPixelMap.get(x).set(y, false);
+        if (m_vPixelMap.get(x, y)) {
+            m_vPixelMap.set(x, y, false);
+            onCellChanged(x, y);
+        }
         return true;
     }
 
+    // called after every real change of the pixel map made by tryChangeToTrue / tryChangeToFalse
+    private void onCellChanged(int x, int y) {
+        m_nCountCellsChanged++;
+        // the cell is a part of 2x2 blocks with top-left corner (x-1..x, y-1..y)
+        int nHeight = m_vPixelMap.getHeight();
+        int x0 = Math.max(x - 1, 1);
+        int x1 = Math.min(x, m_vPixelMap.getWidth() - 2);
+        int y0 = Math.max(y - 1, 1);
+        int y1 = Math.min(y, nHeight - 2);
+        for (int bx = x0; bx <= x1; bx++) {
+            for (int by = y0; by <= y1; by++) {
+                int nPos = bx * nHeight + by;
+                if (nPos > m_nDiagonalTailsScanPos) {
+                    m_dirtyDiagonalTailsCurrent.set(nPos);
+                } else {
+                    m_dirtyDiagonalTailsNext.set(nPos);
+                }
+            }
+        }
+
+        // cells ahead of the running bit-parallel pass which see this cell have to be checked again
+        if (m_cellularCandidates != null) {
+            int cx1 = Math.min(x + 1, m_vPixelMap.getWidth() - 2);
+            int cy1 = Math.min(y + 1, nHeight - 2);
+            for (int cx = Math.max(x - 1, 1); cx <= cx1; cx++) {
+                for (int cy = Math.max(y - 1, 1); cy <= cy1; cy++) {
+                    int nPos = cx * nHeight + cy;
+                    if (nPos > m_nCellularScanPos) {
+                        m_cellularCandidates.set(nPos);
+                    }
+                }
+            }
+        }
+
+        // deadlock depends on 4 neighbours, single point on 8 neighbours
+        int nx0 = Math.max(x - 1, 0);
+        int nx1 = Math.min(x + 1, m_vPixelMap.getWidth() - 1);
+        int ny0 = Math.max(y - 1, 0);
+        int ny1 = Math.min(y + 1, nHeight - 1);
+        for (int nx = nx0; nx <= nx1; nx++) {
+            for (int ny = ny0; ny <= ny1; ny++) {
+                updateTrackedPoint(nx, ny);
+            }
+        }
+    }
+
     private boolean randomInitPoints() {
+        if (m_config.getInitPointsMode() == Roads2DGeneratorInitPointsMode.SAMPLE_WITHOUT_REPLACEMENT) {
+            return randomInitPointsSampled();
+        }
         int immp = 0;
-        Roads2DGeneratorSafeLoop safeLoop = new Roads2DGeneratorSafeLoop(m_config.getMaxAllowInitPointsTries());
+        Roads2DGeneratorSafeLoop safeLoop = new Roads2DGeneratorSafeLoop(m_nMaxAllowInitPointsTries);
         int nMaxMainPoints = m_config.getMaxInitPoints();
 
         while (immp < nMaxMainPoints) {
@@ -828,24 +3213,66 @@ public class Roads2DGenerator {
             }
 
             if (safeLoop.isOverMax()) {
-                printMap();
-                m_sErrorMessage = "Roads2DGenerator::randomInitPoints(), nSafeWhile = " + safeLoop.getLoopNumber();
-                System.err.println(m_sErrorMessage);
-                return false;
+                return onSafeLoopOverMax("randomInitPoints", safeLoop);
+            }
+        }
+        return true;
+    }
+
+    // Cells which can get a point (not border, not preset) are drawn without replacement.
+    // A cell rejected by isAllowed() stays rejected: this stage only adds points, so its 2x2 block stays full.
+    private boolean randomInitPointsSampled() {
+        int nWidth = m_config.getWidth();
+        int nHeight = m_config.getHeight();
+        int nMaxMainPoints = m_config.getMaxInitPoints();
+        int[] vPool = new int[Math.max(nWidth - 2, 0) * Math.max(nHeight - 2, 0)];
+        int nPoolSize = 0;
+        for (int y = 1; y < nHeight - 1; y++) {
+            for (int x = 1; x < nWidth - 1; x++) {
+                if (!isPreset(x, y)) {
+                    vPool[nPoolSize++] = x + y * nWidth;
+                }
+            }
+        }
+
+        int immp = 0;
+        Roads2DGeneratorSafeLoop safeLoop = new Roads2DGeneratorSafeLoop(nPoolSize + 1);
+        for (int i = 0; i < nPoolSize && immp < nMaxMainPoints; i++) {
+            safeLoop.doIncrement();
+            int j = i + getNextRandomIndex(nPoolSize - i);
+            int nCell = vPool[j];
+            vPool[j] = vPool[i];
+            vPool[i] = nCell;
+            if (tryChangeToTrue(nCell % nWidth, nCell / nWidth)) {
+                immp++;
+            }
+            if (safeLoop.isOverMax()) {
+                return onSafeLoopOverMax("randomInitPointsSampled", safeLoop);
             }
         }
         return true;
     }
 
+    // random in [0, nBound), the legacy random has only 28 bits, so two draws are taken for bigger bounds
+    private int getNextRandomIndex(int nBound) {
+        if (nBound <= (1 << 28)) {
+            return m_random.getNextRandom() % nBound;
+        }
+        long nRandom = ((long)m_random.getNextRandom() << 28) ^ m_random.getNextRandom();
+        return (int)(nRandom % nBound);
+    }
+
     private int moveDiagonalTails() {
+        if (m_config.getMoveDiagonalTailsMode() == Roads2DGeneratorMoveDiagonalTailsMode.DIRTY_WORKLIST) {
+            return moveDiagonalTailsDirty();
+        }
+        m_nCountFullScans++;
         int ret = 0;
 
         // Iterate through each column (x)
-        for (int x = 0; x < m_vPixelMap.size(); x++) {
-            List<Boolean> column = m_vPixelMap.get(x);
-
+        for (int x = 0; x < m_vPixelMap.getWidth(); x++) {
             // Iterate through each row (y) in the column
-            for (int y = 0; y < column.size(); y++) {
+            for (int y = 0; y < m_vPixelMap.getHeight(); y++) {
                 ret += checkAndRandomMove(x, y) ? 1 : 0;
             }
         }
@@ -853,17 +3280,35 @@ public class Roads2DGenerator {
         return ret;
     }
 
+    // Same pass as moveDiagonalTails() but only over 2x2 blocks changed since they were checked last time.
+    // A block which was not changed can not match (checkAndRandomMove() without a match changes nothing
+    // and does not draw a random number), so the result and the random sequence are the same as the full scan.
+    // Blocks changed ahead of the current position are checked in this pass, the others in the next one.
+    private int moveDiagonalTailsDirty() {
+        BitSet current = m_dirtyDiagonalTailsNext;
+        m_dirtyDiagonalTailsNext = m_dirtyDiagonalTailsCurrent;
+        m_dirtyDiagonalTailsCurrent = current;
+
+        int ret = 0;
+        int nHeight = m_vPixelMap.getHeight();
+        m_nDiagonalTailsScanPos = -1;
+        for (int nPos = current.nextSetBit(0); nPos >= 0; nPos = current.nextSetBit(nPos + 1)) {
+            m_nDiagonalTailsScanPos = nPos;
+            ret += checkAndRandomMove(nPos / nHeight, nPos % nHeight) ? 1 : 0;
+        }
+        m_nDiagonalTailsScanPos = Integer.MAX_VALUE;
+        current.clear();
+        return ret;
+    }
+
     private boolean moveDiagonalTailsLoop() {
         int mdt = moveDiagonalTails();
-        Roads2DGeneratorSafeLoop safeLoop = new Roads2DGeneratorSafeLoop(m_config.getMaxAllowMoveDiagonalTailsTries());
+        Roads2DGeneratorSafeLoop safeLoop = new Roads2DGeneratorSafeLoop(m_nMaxAllowMoveDiagonalTailsTries);
         while (mdt > 0) {
             safeLoop.doIncrement();
             mdt = moveDiagonalTails();
             if (safeLoop.isOverMax()) {
-                printMap();
-                m_sErrorMessage = "Roads2DGenerator::moveDiagonalTailsLoop(), nSafeWhile = " + safeLoop.getLoopNumber();
-                System.err.println(m_sErrorMessage);
-                return false;
+                return onSafeLoopOverMax("moveDiagonalTailsLoop", safeLoop);
             }
         }
         return true;
@@ -876,10 +3321,10 @@ public class Roads2DGenerator {
 
         boolean modified = false;
 
-        if (m_vPixelMap.get(x).get(y) &&
-            m_vPixelMap.get(x+1).get(y+1) &&
-            !m_vPixelMap.get(x).get(y+1) &&
-            !m_vPixelMap.get(x+1).get(y)) {
+        if (m_vPixelMap.get(x, y) &&
+            m_vPixelMap.get(x+1, y+1) &&
+            !m_vPixelMap.get(x, y+1) &&
+            !m_vPixelMap.get(x+1, y)) {
             modified = true;
             tryChangeToFalse(x+1, y+1);
             if (m_random.getNextRandom() % 2 == 0) {
@@ -888,10 +3333,10 @@ public class Roads2DGenerator {
                 tryChangeToTrue(x+1, y);
             }
         }
-        else if (!m_vPixelMap.get(x).get(y) &&
-                !m_vPixelMap.get(x+1).get(y+1) &&
-                m_vPixelMap.get(x).get(y+1) &&
-                m_vPixelMap.get(x+1).get(y)) {
+        else if (!m_vPixelMap.get(x, y) &&
+                !m_vPixelMap.get(x+1, y+1) &&
+                m_vPixelMap.get(x, y+1) &&
+                m_vPixelMap.get(x+1, y)) {
             modified = true;
             tryChangeToFalse(x, y+1);
             if (m_random.getNextRandom() % 2 == 0) {
@@ -907,36 +3352,21 @@ public class Roads2DGenerator {
         if (isBorder(x, y)) {
             return 4;  // Special case for border points
         }
-
-        int count = 0;
-
-        // Check 3x3 neighborhood (excluding center point)
-        for (int dx = 0; dx < 3; dx++) {
-            for (int dy = 0; dy < 3; dy++) {
-                int x0 = x + dx - 1;
-                int y0 = y + dy - 1;
-                if (x0 == x && y0 == y) {
-                    continue;
-                }
-                if (m_vPixelMap.get(x0).get(y0)) {
-                    count++;
-                }
-            }
-        }
-        return count;
+        return NEIGHBOURHOOD[getNeighbourhoodCode(x, y)] & NB_AROUND_COUNT;
     }
 
     private List<Roads2DGeneratorPoint> findSinglePoints() {
-        List<Roads2DGeneratorPoint> singlePoints = new ArrayList<>();
-        for (int x = 0; x < m_vPixelMap.size(); x++) {
-            List<Boolean> column = m_vPixelMap.get(x);
-            for (int y = 0; y < column.size(); y++) {
-                if (isSinglePoint(x, y)) {
-                    singlePoints.add(new Roads2DGeneratorPoint(x, y));
-                }
-            }
+        return getTrackedPoints(m_singlePoints);
+    }
+
+    // points in the same order as the scan column by column
+    private List<Roads2DGeneratorPoint> getTrackedPoints(BitSet points) {
+        List<Roads2DGeneratorPoint> vPoints = new ArrayList<>(points.cardinality());
+        int nHeight = m_vPixelMap.getHeight();
+        for (int nPos = points.nextSetBit(0); nPos >= 0; nPos = points.nextSetBit(nPos + 1)) {
+            vPoints.add(new Roads2DGeneratorPoint(nPos / nHeight, nPos % nHeight));
         }
-        return singlePoints;
+        return vPoints;
     }
 
     private int drawLineByY(int x0, int x1, int y) {
@@ -944,7 +3374,7 @@ public class Roads2DGenerator {
         int ix = Math.min(x0, x1);
         int mx = Math.max(x0,x1);
         for (int i = ix; i <= mx; i++) {
-            if (!m_vPixelMap.get(i).get(y)) {
+            if (!m_vPixelMap.get(i, y)) {
                 if (tryChangeToTrue(i,y)) {
                     ret += 1;
                 }
@@ -958,7 +3388,7 @@ public class Roads2DGenerator {
         int iy = Math.min(y0, y1);
         int my = Math.max(y0, y1);
         for (int i = iy; i <= my; i++) {
-            if (!m_vPixelMap.get(x).get(i)) {
+            if (!m_vPixelMap.get(x, i)) {
                 if (tryChangeToTrue(x, i)) {
                     ret++;
                 }
@@ -993,72 +3423,240 @@ public class Roads2DGenerator {
         }
     }
 
+    // border cells are never rames, the window slides down every inner column
     private void removeRames() {
-        for (int x = 0; x < m_vPixelMap.size(); x++) {
-            List<Boolean> line = m_vPixelMap.get(x);
-            for (int y = 0; y < line.size(); y++) {
-                if (isRame(x, y)) {
+        m_nCountFullScans++;
+        if (m_config.getCellularMode() == Roads2DGeneratorCellularMode.BIT_PARALLEL) {
+            runCellularRule(RULE_RAME);
+            return;
+        }
+        int nWidth = m_vPixelMap.getWidth();
+        int nHeight = m_vPixelMap.getHeight();
+        for (int x = 1; x < nWidth - 1 && nHeight > 2; x++) {
+            int nCode = getNeighbourhoodCode(x, 1);
+            for (int y = 1; y < nHeight - 1; y++) {
+                if ((NEIGHBOURHOOD[nCode] & NB_RAME) != 0) {
                     tryChangeToFalse(x,y);
                     // write_map_to_image()
+                    nCode = getNeighbourhoodCode(x, y);
                 }
+                nCode = slideNeighbourhoodCode(nCode, x, y);
             }
         }
     }
 
     private boolean canConnectClosePoints(int x, int y) {
-         if (isBorder(x, y) || m_vPixelMap.get(x).get(y)) {
+        if (isBorder(x, y)) {
             return false;
         }
-        boolean verticalConnect = m_vPixelMap.get(x).get(y+1) && m_vPixelMap.get(x).get(y-1);
-        boolean horizontalConnect = m_vPixelMap.get(x+1).get(y) && m_vPixelMap.get(x-1).get(y);
-        return verticalConnect || horizontalConnect;
+        return (NEIGHBOURHOOD[getNeighbourhoodCode(x, y)] & NB_CAN_CONNECT_CLOSE) != 0;
     }
 
+    // border cells can not connect close points, the window slides down every inner column
     private void connectAllClosePoints() {
-        for (int x = 0; x < m_vPixelMap.size(); x++) {
-            List<Boolean> column = m_vPixelMap.get(x);
-            for (int y = 0; y < column.size(); y++) {
-                int aroundCount = getAroundCount(x, y);
-                if (canConnectClosePoints(x, y) && aroundCount < 6) {
+        m_nCountFullScans++;
+        if (m_config.getCellularMode() == Roads2DGeneratorCellularMode.BIT_PARALLEL) {
+            runCellularRule(RULE_CONNECT_CLOSE_POINT);
+            return;
+        }
+        int nWidth = m_vPixelMap.getWidth();
+        int nHeight = m_vPixelMap.getHeight();
+        for (int x = 1; x < nWidth - 1 && nHeight > 2; x++) {
+            int nCode = getNeighbourhoodCode(x, 1);
+            for (int y = 1; y < nHeight - 1; y++) {
+                if ((NEIGHBOURHOOD[nCode] & NB_CONNECT_CLOSE_POINT) != 0) {
                     tryChangeToTrue(x, y);
+                    nCode = getNeighbourhoodCode(x, y);
                 }
+                nCode = slideNeighbourhoodCode(nCode, x, y);
             }
         }
     }
 
+    // around count of border cells is 4, so only inner columns are scanned with the sliding window
     private int removeAllShortCicles() {
+        m_nCountFullScans++;
+        if (m_config.getCellularMode() == Roads2DGeneratorCellularMode.BIT_PARALLEL) {
+            return runCellularRule(RULE_SHORT_CICLE);
+        }
         int ret = 0;
-        for (int x = 0; x < m_vPixelMap.size(); x++) {
-            List<Boolean> line = m_vPixelMap.get(x);
-            for (int y = 0; y < line.size(); y++) {
-                if (getAroundCount(x, y) == 8 && !m_vPixelMap.get(x).get(y)) {
-                    int n = m_random.getNextRandom() % 4;
-                    if (n == 0) {
-                        tryChangeToFalse(x, y+1);
-                    } else if (n == 1) {
-                        tryChangeToFalse(x, y-1);
-                    } else if (n == 2) {
-                        tryChangeToFalse(x+1, y);
-                    } else if (n == 2) {
-                        tryChangeToFalse(x-1, y);
-                    }
+        int nWidth = m_vPixelMap.getWidth();
+        int nHeight = m_vPixelMap.getHeight();
+        for (int x = 1; x < nWidth - 1 && nHeight > 2; x++) {
+            int nCode = getNeighbourhoodCode(x, 1);
+            for (int y = 1; y < nHeight - 1; y++) {
+                if ((NEIGHBOURHOOD[nCode] & NB_SHORT_CICLE) != 0) {
+                    removeShortCicle(x, y);
                     ret += 1;
                     // write_map_to_image()
+                    nCode = getNeighbourhoodCode(x, y);
+                }
+                nCode = slideNeighbourhoodCode(nCode, x, y);
+            }
+        }
+        return ret;
+    }
+
+    // breaks the cycle around the empty cell (x, y)
+    private void removeShortCicle(int x, int y) {
+        int n = m_random.getNextRandom() % 4;
+        if (n == 0) {
+            tryChangeToFalse(x, y+1);
+        } else if (n == 1) {
+            tryChangeToFalse(x, y-1);
+        } else if (n == 2) {
+            tryChangeToFalse(x+1, y);
+        } else if (n == 2) {
+            tryChangeToFalse(x-1, y);
+        }
+    }
+
+    // Bit-parallel pass: the rule is evaluated for whole row words, found cells are visited column by column
+    // like in CELL_BY_CELL and checked again on the current map. A cell which was not found can become a match only
+    // when a cell of its 3x3 changes before its turn, onCellChanged() adds such cells, so the result is the same.
+    // Returns the count of matched cells.
+    private int runCellularRule(int nRule) {
+        int nWidth = m_vPixelMap.getWidth();
+        int nHeight = m_vPixelMap.getHeight();
+        if (nWidth < 3 || nHeight < 3) {
+            return 0;
+        }
+        BitSet candidates = new BitSet(nWidth * nHeight);
+        for (int y = 1; y < nHeight - 1; y++) {
+            for (int w = 0; w < m_vPixelMap.getWordsPerRow(); w++) {
+                long nMask = getCellularRuleWord(nRule, w, y);
+                while (nMask != 0) {
+                    int x = (w << 6) + Long.numberOfTrailingZeros(nMask);
+                    nMask &= nMask - 1;
+                    candidates.set(x * nHeight + y);
+                }
+            }
+        }
+
+        int nFlag = nRule == RULE_RAME ? NB_RAME : (nRule == RULE_CONNECT_CLOSE_POINT ? NB_CONNECT_CLOSE_POINT : NB_SHORT_CICLE);
+        int ret = 0;
+        m_cellularCandidates = candidates;
+        try {
+            for (int nPos = candidates.nextSetBit(0); nPos >= 0; nPos = candidates.nextSetBit(nPos + 1)) {
+                m_nCellularScanPos = nPos;
+                int x = nPos / nHeight;
+                int y = nPos % nHeight;
+                if ((NEIGHBOURHOOD[getNeighbourhoodCode(x, y)] & nFlag) == 0) {
+                    continue;
+                }
+                ret++;
+                if (nRule == RULE_RAME) {
+                    tryChangeToFalse(x, y);
+                } else if (nRule == RULE_CONNECT_CLOSE_POINT) {
+                    tryChangeToTrue(x, y);
+                } else {
+                    removeShortCicle(x, y);
                 }
             }
+        } finally {
+            m_cellularCandidates = null;
         }
         return ret;
     }
 
+    // rules of getCellularRuleWord()
+    private static final int RULE_RAME = 0;
+    private static final int RULE_CONNECT_CLOSE_POINT = 1;
+    private static final int RULE_SHORT_CICLE = 2;
+    private static final int RULE_SINGLE = 3;
+    private static final int RULE_DEADLOCK = 4;
+
+    // Cells of the word w of the inner row y which match the rule (bit i - cell w * 64 + i), the same as the NB_* flags.
+    // Neighbours of all 64 cells are whole words shifted by one cell: for the row r, l - cells x-1, c - cells x, r - cells x+1.
+    private long getCellularRuleWord(int nRule, int w, int y) {
+        int nWords = m_vPixelMap.getWordsPerRow();
+        long n = m_vPixelMap.getWord(w, y - 1);
+        long c = m_vPixelMap.getWord(w, y);
+        long s = m_vPixelMap.getWord(w, y + 1);
+        long nPrev = w > 0 ? m_vPixelMap.getWord(w - 1, y - 1) : 0;
+        long cPrev = w > 0 ? m_vPixelMap.getWord(w - 1, y) : 0;
+        long sPrev = w > 0 ? m_vPixelMap.getWord(w - 1, y + 1) : 0;
+        long nNext = w + 1 < nWords ? m_vPixelMap.getWord(w + 1, y - 1) : 0;
+        long cNext = w + 1 < nWords ? m_vPixelMap.getWord(w + 1, y) : 0;
+        long sNext = w + 1 < nWords ? m_vPixelMap.getWord(w + 1, y + 1) : 0;
+
+        // the same names as in the NEIGHBOURHOOD table: b<dx + 1><dy + 1>
+        long b00 = (n << 1) | (nPrev >>> 63);
+        long b10 = n;
+        long b20 = (n >>> 1) | (nNext << 63);
+        long b01 = (c << 1) | (cPrev >>> 63);
+        long b11 = c;
+        long b21 = (c >>> 1) | (cNext << 63);
+        long b02 = (s << 1) | (sPrev >>> 63);
+        long b12 = s;
+        long b22 = (s >>> 1) | (sNext << 63);
+
+        long nMatch;
+        switch (nRule) {
+            case RULE_RAME:
+                nMatch = b11 & (
+                    (b00 & b01 & b02 & ~b10 & ~b12 & ~b20 & ~b21 & ~b22)
+                    | (b20 & b21 & b22 & ~b00 & ~b01 & ~b02 & ~b10 & ~b12)
+                    | (b00 & b10 & b20 & ~b02 & ~b12 & ~b22 & ~b01 & ~b21)
+                    | (b02 & b12 & b22 & ~b00 & ~b10 & ~b20 & ~b01 & ~b21));
+                break;
+            case RULE_CONNECT_CLOSE_POINT: {
+                // bit-sliced count of the 8 neighbours of every cell, around count >= 6 is 0b11x or 0b1000
+                long s0 = 0;
+                long s1 = 0;
+                long s2 = 0;
+                long s3 = 0;
+                for (long v : new long[] { b00, b10, b20, b01, b21, b02, b12, b22 }) {
+                    long c0 = s0 & v;
+                    s0 ^= v;
+                    long c1 = s1 & c0;
+                    s1 ^= c0;
+                    long c2 = s2 & c1;
+                    s2 ^= c1;
+                    s3 |= c2;
+                }
+                long nAroundAtLeast6 = s3 | (s2 & s1);
+                nMatch = ~b11 & ((b12 & b10) | (b21 & b01)) & ~nAroundAtLeast6;
+                break;
+            }
+            case RULE_SHORT_CICLE:
+                nMatch = ~b11 & b00 & b10 & b20 & b01 & b21 & b02 & b12 & b22;
+                break;
+            case RULE_SINGLE:
+                nMatch = b11 & ~(b00 | b10 | b20 | b01 | b21 | b02 | b12 | b22);
+                break;
+            case RULE_DEADLOCK: {
+                long nAny = b01 | b21 | b10 | b12;
+                long nTwo = (b01 & b21) | (b01 & b10) | (b01 & b12) | (b21 & b10) | (b21 & b12) | (b10 & b12);
+                nMatch = b11 & nAny & ~nTwo;
+                break;
+            }
+            default:
+                nMatch = 0;
+                break;
+        }
+        return nMatch & getInnerCellsMask(w);
+    }
+
+    // cells of the word w with 1 <= x <= width - 2
+    private long getInnerCellsMask(int w) {
+        long nMask = w == 0 ? ~1L : -1L;
+        int nLimit = m_vPixelMap.getWidth() - 1 - (w << 6); // first lane which is not inner
+        if (nLimit <= 0) {
+            return 0;
+        }
+        if (nLimit < 64) {
+            nMask &= (1L << nLimit) - 1;
+        }
+        return nMask;
+    }
+
     private boolean removeAllShortCiclesLoop() {
-        Roads2DGeneratorSafeLoop safeLoop = new Roads2DGeneratorSafeLoop(m_config.getMaxAllowRemoveAllShortCiclesLoopTries());
+        Roads2DGeneratorSafeLoop safeLoop = new Roads2DGeneratorSafeLoop(m_nMaxAllowRemoveAllShortCiclesLoopTries);
         while (removeAllShortCicles() > 0) {
             safeLoop.doIncrement();
             if (safeLoop.isOverMax()) {
-                printMap();
-                m_sErrorMessage = "Roads2DGenerator::removeAllShortCiclesLoop(), nSafeWhile = " + safeLoop.getLoopNumber();
-                System.err.println(m_sErrorMessage);
-                return false;
+                return onSafeLoopOverMax("removeAllShortCiclesLoop", safeLoop);
             }
             continue;
         }
@@ -1069,28 +3667,11 @@ public class Roads2DGenerator {
         if (isBorder(x, y)) {
             return false;
         }
-        if (!m_vPixelMap.get(x).get(y)) {
-            return false;
-        }
-        int count = 0;
-        if (m_vPixelMap.get(x-1).get(y)) count += 1;
-        if (m_vPixelMap.get(x+1).get(y)) count += 1;
-        if (m_vPixelMap.get(x).get(y+1)) count += 1;
-        if (m_vPixelMap.get(x).get(y-1)) count += 1;
-        return count == 1;
+        return (NEIGHBOURHOOD[getNeighbourhoodCode(x, y)] & NB_DEADLOCK) != 0;
     }
 
     List<Roads2DGeneratorPoint> findDeadlockPoints() {
-        List<Roads2DGeneratorPoint> vDeadlockPoints = new ArrayList<>();
-        for (int x = 0; x < m_vPixelMap.size(); x++) {
-            List<Boolean> line = m_vPixelMap.get(x);
-            for (int y = 0; y < line.size(); y++) {
-                if (isDeadlockPoint(x, y)) {
-                    vDeadlockPoints.add(new Roads2DGeneratorPoint(x,y));
-                }
-            }
-        }
-        return vDeadlockPoints;
+        return getTrackedPoints(m_deadlockPoints);
     }
 
     Roads2DGeneratorPoint findShortPointFrom(Roads2DGeneratorPoint p0, List<Roads2DGeneratorPoint> points) {
@@ -1098,7 +3679,7 @@ public class Roads2DGenerator {
         int y0 = p0.getY();
         int found_x1 = x0;
         int found_y1 = y0;
-        int dist = m_vPixelMap.size() + m_vPixelMap.get(0).size() + 1; // max dist
+        int dist = m_vPixelMap.getWidth() + m_vPixelMap.getHeight() + 1; // max dist
         for (int i = 0; i < points.size(); i++) {
             int x1 = points.get(i).getX();
             int y1 = points.get(i).getY();
@@ -1147,111 +3728,158 @@ public class Roads2DGenerator {
     }
 
 
+    // Removes the first deadlock point (column by column) until there are no deadlocks.
+    // Removing a cell can turn only its 4 neighbours into deadlocks and the left one is the
+    // smallest of them, so the next first deadlock is searched from one column back only.
     private void removeDeadlocksLoop() {
-        List<Roads2DGeneratorPoint> vDeadlocks = findDeadlockPoints();
-        while (vDeadlocks.size() > 0) {
-            int x = vDeadlocks.get(0).getX();
-            int y = vDeadlocks.get(0).getY();
-            tryChangeToFalse(x, y);
+        int nHeight = m_vPixelMap.getHeight();
+        int nPos = m_deadlockPoints.nextSetBit(0);
+        while (nPos >= 0 && !isStopRequested()) {
+            if (!tryChangeToFalse(nPos / nHeight, nPos % nHeight)) {
+                // fixed road (see generateRegion()), usual maps have no roads on presets
+                nPos = m_deadlockPoints.nextSetBit(nPos + 1);
+                continue;
+            }
             // write_map_to_image();
-            vDeadlocks = findDeadlockPoints();
+            nPos = m_deadlockPoints.nextSetBit(Math.max(nPos - nHeight, 0));
         }
     }
 
     private boolean connectUnunionRoads() {
-        List<Roads2DGeneratorConnectedComponent> comps = findConnectedComponents();
-        Roads2DGeneratorSafeLoop safeLoop = new Roads2DGeneratorSafeLoop(m_config.getMaxAllowConnectUnunionRoadsTries());
+        List<Roads2DGeneratorConnectedComponent> comps = findConnectableComponents();
+        Roads2DGeneratorSafeLoop safeLoop = new Roads2DGeneratorSafeLoop(m_nMaxAllowConnectUnunionRoadsTries);
         while (comps.size() > 1) {
-            Roads2DGeneratorPoint p0 = comps.get(0).getPoints().get(m_random.getNextRandom() % comps.get(0).getPoints().size());
-            Roads2DGeneratorPoint p1 = comps.get(1).getPoints().get(m_random.getNextRandom() % comps.get(1).getPoints().size());
+            List<Roads2DGeneratorPoint> vPoints0 = getConnectablePoints(comps.get(0));
+            Roads2DGeneratorPoint p0 = vPoints0.get(m_random.getNextRandom() % vPoints0.size());
+            List<Roads2DGeneratorPoint> vPoints1 = getConnectablePoints(comps.get(1));
+            Roads2DGeneratorPoint p1 = vPoints1.get(m_random.getNextRandom() % vPoints1.size());
             connectPoints(p0, p1);
             if (!moveDiagonalTailsLoop()) {
                 return false;
             }
-            comps = findConnectedComponents();
+            comps = findConnectableComponents();
 
             safeLoop.doIncrement();
             if (safeLoop.isOverMax()) {
-                printMap();
-                m_sErrorMessage = "Roads2DGenerator::connectUnunionRoads(), nSafeWhile = " + safeLoop.getLoopNumber();
-                System.err.println(m_sErrorMessage);
-                return false;
+                return onSafeLoopOverMax("connectUnunionRoads", safeLoop);
             }
         }
         // std::cout << "comps.size() = " << comps.size() << std::endl;
         return true;
     }
 
-    private String getRoadPart(int x, int y) {
-        if (x < 0 || x >= m_config.getWidth() || y < 0 || y >= m_config.getHeight()) {
-            return "error";
+    // Roads on presets are fixed (the frame of generateRegion()), usual maps have none. Components of fixed roads only
+    // are connected outside of the map, connections start from not fixed roads.
+    private List<Roads2DGeneratorConnectedComponent> findConnectableComponents() {
+        List<Roads2DGeneratorConnectedComponent> comps = findConnectedComponents();
+        if (!hasFixedRoads()) {
+            return comps;
         }
-        if (!m_vPixelMap.get(x).get(y)) {
-            return "";
+        List<Roads2DGeneratorConnectedComponent> ret = new ArrayList<>();
+        for (Roads2DGeneratorConnectedComponent comp : comps) {
+            if (!getConnectablePoints(comp).isEmpty()) {
+                ret.add(comp);
+            }
         }
+        return ret;
+    }
 
-        boolean left = m_vPixelMap.get(x).get(y-1);
-        boolean right = m_vPixelMap.get(x).get(y+1);
-        boolean top = m_vPixelMap.get(x-1).get(y);
-        boolean bottom = m_vPixelMap.get(x+1).get(y);
+    private List<Roads2DGeneratorPoint> getConnectablePoints(Roads2DGeneratorConnectedComponent comp) {
+        List<Roads2DGeneratorPoint> vPoints = comp.getPoints();
+        vPoints.removeIf(p -> isPreset(p.getX(), p.getY()));
+        return vPoints;
+    }
 
-        if (left && right && top && bottom) {
-            return "cross";
-        }
-        if (left && right && ! top && ! bottom) {
-            return "horizontal";
-        }
-        if (! left && ! right && top && bottom) {
-            return "vertical";
-        }
-        if (! left && right && ! top && bottom) {
-            return "right-down";
-        }
-        if (left && ! right && ! top && bottom) {
-            return "left-down";
+    private boolean hasFixedRoads() {
+        for (int y = 0; y < m_vPixelMap.getHeight(); y++) {
+            for (int w = 0; w < m_vPixelMap.getWordsPerRow(); w++) {
+                if ((m_vPixelMap.getWord(w, y) & m_cachePresets.getWord(w, y)) != 0) {
+                    return true;
+                }
+            }
         }
-        if (! left && right && top && ! bottom) {
-            return "right-up";
+        return false;
+    }
+
+    // directions of Roads2DGeneratorRoadNetwork: up, left, right, down, the opposite of d is 3 - d
+    private static final int[] DIRECTION_X = {0, -1, 1, 0};
+    private static final int[] DIRECTION_Y = {-1, 0, 0, 1};
+
+    // road part by the mask of neighbours, bits: 1 - (x, y-1) "left", 2 - (x, y+1) "right", 4 - (x-1, y) "top", 8 - (x+1, y) "bottom"
+    private static final Roads2DGeneratorRoadPart[] ROAD_PART_BY_MASK = {
+        Roads2DGeneratorRoadPart.UNKNOWN, Roads2DGeneratorRoadPart.UNKNOWN,
+        Roads2DGeneratorRoadPart.UNKNOWN, Roads2DGeneratorRoadPart.HORIZONTAL,
+        Roads2DGeneratorRoadPart.UNKNOWN, Roads2DGeneratorRoadPart.LEFT_UP,
+        Roads2DGeneratorRoadPart.RIGHT_UP, Roads2DGeneratorRoadPart.LEFT_RIGHT_UP,
+        Roads2DGeneratorRoadPart.UNKNOWN, Roads2DGeneratorRoadPart.LEFT_DOWN,
+        Roads2DGeneratorRoadPart.RIGHT_DOWN, Roads2DGeneratorRoadPart.LEFT_RIGHT_DOWN,
+        Roads2DGeneratorRoadPart.VERTICAL, Roads2DGeneratorRoadPart.LEFT_UP_DOWN,
+        Roads2DGeneratorRoadPart.RIGHT_UP_DOWN, Roads2DGeneratorRoadPart.CROSS,
+    };
+    private static final byte[] ROAD_PART_CODE_BY_MASK = new byte[ROAD_PART_BY_MASK.length];
+    static {
+        for (int i = 0; i < ROAD_PART_BY_MASK.length; i++) {
+            ROAD_PART_CODE_BY_MASK[i] = ROAD_PART_BY_MASK[i].getCode();
         }
-        if (left && ! right && top && ! bottom) {
-            return "left-up";
+    }
+
+    // cells outside of the map are empty, so border cells are safe
+    private int getNeighboursMask(int x, int y) {
+        int nMask = 0;
+        if (y > 0 && m_vPixelMap.get(x, y - 1)) {
+            nMask |= 1;
         }
-        if (left && ! right && top && bottom) {
-            return "left-up-down";
+        if (y < m_vPixelMap.getHeight() - 1 && m_vPixelMap.get(x, y + 1)) {
+            nMask |= 2;
         }
-        if (! left && right && top && bottom) {
-            return "right-up-down";
+        if (x > 0 && m_vPixelMap.get(x - 1, y)) {
+            nMask |= 4;
         }
-        if (left && right && ! top && bottom) {
-            return "left-right-down";
+        if (x < m_vPixelMap.getWidth() - 1 && m_vPixelMap.get(x + 1, y)) {
+            nMask |= 8;
         }
-        if (left && right && top && ! bottom) {
-            return "left-right-up";
+        return nMask;
+    }
+
+    // codes of nCount cells from (x0, y) into vOut from nOffset
+    private void fillRoadPartCodes(int x0, int y, int nCount, byte[] vOut, int nOffset) {
+        int nWidth = m_vPixelMap.getWidth();
+        byte nEmpty = Roads2DGeneratorRoadPart.EMPTY.getCode();
+        if (y < 0 || y >= m_vPixelMap.getHeight()) {
+            Arrays.fill(vOut, nOffset, nOffset + nCount, nEmpty);
+            return;
+        }
+        for (int i = 0; i < nCount; i++) {
+            int x = x0 + i;
+            if (x < 0 || x >= nWidth || !m_vPixelMap.get(x, y)) {
+                vOut[nOffset + i] = nEmpty;
+            } else {
+                vOut[nOffset + i] = ROAD_PART_CODE_BY_MASK[getNeighboursMask(x, y)];
+            }
         }
-        return "unknown";
     }
 
-    private List<Roads2DGeneratorConnectedComponent> findConnectedComponents() {
-        Roads2DGeneratorConnectedComponents components = new Roads2DGeneratorConnectedComponents();
-        int nPoints = 0;
-        for (int x = 0; x < m_config.getWidth() - 1; x++) {
-            for (int y = 0; y < m_config.getHeight() - 1; y++) {
-                Roads2DGeneratorPoint p0 = new Roads2DGeneratorPoint(x,y);
-                Roads2DGeneratorPoint p1 = new Roads2DGeneratorPoint(x+1,y);
-                Roads2DGeneratorPoint p2 = new Roads2DGeneratorPoint(x,y+1);
-                if (m_vPixelMap.get(p0.getX()).get(p0.getY())) {
-                    nPoints++;
+    List<Roads2DGeneratorConnectedComponent> findConnectedComponents() {
+        m_nCountFullScans++;
+        int nWidth = m_vPixelMap.getWidth();
+        int nHeight = m_vPixelMap.getHeight();
+        Roads2DGeneratorConnectedComponents components = new Roads2DGeneratorConnectedComponents(nWidth, nHeight);
+        // same edge order as before: column by column, right neighbour then bottom neighbour
+        for (int x = 0; x < nWidth - 1; x++) {
+            for (int y = 0; y < nHeight - 1; y++) {
+                if (!m_vPixelMap.get(x, y)) {
+                    continue;
                 }
-                if (m_vPixelMap.get(p0.getX()).get(p0.getY()) && m_vPixelMap.get(p1.getX()).get(p1.getY())) {
-                    components.addConnectedPoints(p0, p1);
+                int nCell = x + y * nWidth;
+                if (m_vPixelMap.get(x+1, y)) {
+                    components.addConnectedCells(nCell, nCell + 1);
                 }
-                if (m_vPixelMap.get(p0.getX()).get(p0.getY()) && m_vPixelMap.get(p2.getX()).get(p2.getY())) {
-                    components.addConnectedPoints(p0, p2);
+                if (m_vPixelMap.get(x, y+1)) {
+                    components.addConnectedCells(nCell, nCell + nWidth);
                 }
             }
         }
-        List<Roads2DGeneratorConnectedComponent> vComponents = components.getComponents();
-        return vComponents;
+        return components.getComponents();
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,227 @@
+/*
+MIT License
+
+Copyright (c) 2021-2025 Evgenii Sopov (mrseakg@gmail.com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+// original source-code: https://github.com/sea5kg/Roads2DGenerator
+
+package src;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Roads2DGeneratorBatch - generates maps for many seeds concurrently.
+// Every seed gets its own Roads2DGenerator and its own copy of the base config, nothing mutable is shared
+// between tasks, so the result for a seed is the same as a single generate() with this seed.
+public class Roads2DGeneratorBatch {
+
+    // Roads2DGeneratorBatchResult
+    public class Roads2DGeneratorBatchResult {
+        private final int m_nSeed;
+        private final boolean m_bSuccess;
+        private final String m_sErrorMessage;
+        private final Roads2DGenerator m_generator;
+
+        public Roads2DGeneratorBatchResult(int nSeed, boolean bSuccess, String sErrorMessage, Roads2DGenerator generator) {
+            this.m_nSeed = nSeed;
+            this.m_bSuccess = bSuccess;
+            this.m_sErrorMessage = sErrorMessage;
+            this.m_generator = generator;
+        }
+
+        public int getSeed() {
+            return m_nSeed;
+        }
+
+        public boolean isSuccess() {
+            return m_bSuccess;
+        }
+
+        public String getErrorMessage() {
+            return m_sErrorMessage;
+        }
+
+        // generator with the map of this seed, use it for export
+        public Roads2DGenerator getGenerator() {
+            return m_generator;
+        }
+    }
+
+    // Roads2DGeneratorBatchListener - called from worker threads as soon as a seed is done
+    public interface Roads2DGeneratorBatchListener {
+        void onResult(Roads2DGeneratorBatchResult result);
+    }
+
+    private final ExecutorService m_executor;
+
+    public Roads2DGeneratorBatch() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    // executor is not owned by the batch and is not shut down
+    public Roads2DGeneratorBatch(ExecutorService executor) {
+        m_executor = executor;
+    }
+
+    // seeds from nSeedFrom (inclusive) to nSeedTo (exclusive), results are in the order of seeds
+    public List<Roads2DGeneratorBatchResult> generate(Roads2DGenerator.Roads2DGeneratorConfig baseConfig, int nSeedFrom, int nSeedTo) {
+        return generate(baseConfig, seedRange(nSeedFrom, nSeedTo));
+    }
+
+    // results are in the order of seeds
+    public List<Roads2DGeneratorBatchResult> generate(Roads2DGenerator.Roads2DGeneratorConfig baseConfig, int[] vSeeds) {
+        Roads2DGenerator.Roads2DGeneratorConfig config = snapshot(baseConfig);
+        List<Future<Roads2DGeneratorBatchResult>> vFutures = new ArrayList<>(vSeeds.length);
+        for (int nSeed : vSeeds) {
+            vFutures.add(m_executor.submit(() -> generateOne(config, nSeed)));
+        }
+        List<Roads2DGeneratorBatchResult> vResults = new ArrayList<>(vSeeds.length);
+        for (int i = 0; i < vFutures.size(); i++) {
+            vResults.add(waitFor(vFutures.get(i), vSeeds[i]));
+        }
+        return vResults;
+    }
+
+    // results are not kept, so memory does not grow with the count of seeds; blocks until all seeds are done
+    public void generate(Roads2DGenerator.Roads2DGeneratorConfig baseConfig, int[] vSeeds, Roads2DGeneratorBatchListener listener) {
+        Roads2DGenerator.Roads2DGeneratorConfig config = snapshot(baseConfig);
+        List<Future<?>> vFutures = new ArrayList<>(vSeeds.length);
+        for (int nSeed : vSeeds) {
+            vFutures.add(m_executor.submit(() -> listener.onResult(generateOne(config, nSeed))));
+        }
+        for (int i = 0; i < vFutures.size(); i++) {
+            Roads2DGeneratorBatchResult failed = waitFor(vFutures.get(i), vSeeds[i]);
+            if (failed != null) {
+                listener.onResult(failed);
+            }
+        }
+    }
+
+    // Races nCandidates seeds derived from the seed of the base config (see deriveSeed()) and returns
+    // the first one which succeeds, the rest are cancelled. Which seed wins depends on timing, so keep getSeed()
+    // of the result: generate() with it gives the same map. Failed result if all seeds failed.
+    public Roads2DGeneratorBatchResult generateAny(Roads2DGenerator.Roads2DGeneratorConfig baseConfig, int nCandidates) {
+        return generateAny(baseConfig, nCandidates, null);
+    }
+
+    // timeout - for every candidate, null for no limit
+    public Roads2DGeneratorBatchResult generateAny(Roads2DGenerator.Roads2DGeneratorConfig baseConfig, int nCandidates, Duration timeout) {
+        Roads2DGenerator.Roads2DGeneratorConfig config = snapshot(baseConfig);
+        Roads2DGeneratorCancellationToken token = new Roads2DGeneratorCancellationToken();
+        ExecutorCompletionService<Roads2DGeneratorBatchResult> completion = new ExecutorCompletionService<>(m_executor);
+        List<Future<Roads2DGeneratorBatchResult>> vFutures = new ArrayList<>();
+        for (int i = 0; i < nCandidates; i++) {
+            int nSeed = deriveSeed(config.getSeedInitRandom(), i);
+            vFutures.add(completion.submit(() -> generateCandidate(config, nSeed, timeout, token)));
+        }
+        try {
+            for (int i = 0; i < vFutures.size(); i++) {
+                Roads2DGeneratorBatchResult result;
+                try {
+                    result = completion.take().get();
+                } catch (ExecutionException e) {
+                    continue;
+                }
+                if (result.isSuccess()) {
+                    return result;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Roads2DGeneratorBatchResult(config.getSeedInitRandom(), false, "Roads2DGeneratorBatch::generateAny(), interrupted", null);
+        } finally {
+            token.cancel();
+            for (Future<Roads2DGeneratorBatchResult> future : vFutures) {
+                future.cancel(false);
+            }
+        }
+        return new Roads2DGeneratorBatchResult(config.getSeedInitRandom(), false,
+            "Roads2DGeneratorBatch::generateAny(), all " + nCandidates + " seeds failed", null);
+    }
+
+    // index 0 is the seed itself, see Roads2DGenerator.deriveSeed()
+    public static int deriveSeed(int nBaseSeed, int nIndex) {
+        return Roads2DGenerator.deriveSeed(nBaseSeed, nIndex);
+    }
+
+    public static int[] seedRange(int nSeedFrom, int nSeedTo) {
+        int[] vSeeds = new int[Math.max(nSeedTo - nSeedFrom, 0)];
+        for (int i = 0; i < vSeeds.length; i++) {
+            vSeeds[i] = nSeedFrom + i;
+        }
+        return vSeeds;
+    }
+
+    private Roads2DGeneratorBatchResult generateOne(Roads2DGenerator.Roads2DGeneratorConfig config, int nSeed) {
+        Roads2DGenerator generator = new Roads2DGenerator();
+        generator.getConfig().copyFrom(config).setSeedInitRandom(nSeed);
+        try {
+            boolean bSuccess = generator.generate();
+            return new Roads2DGeneratorBatchResult(nSeed, bSuccess, generator.getErrorMessage(), generator);
+        } catch (RuntimeException e) {
+            return new Roads2DGeneratorBatchResult(nSeed, false, "Roads2DGeneratorBatch::generate(), " + e, generator);
+        }
+    }
+
+    private Roads2DGeneratorBatchResult generateCandidate(Roads2DGenerator.Roads2DGeneratorConfig config, int nSeed,
+                                                          Duration timeout, Roads2DGeneratorCancellationToken token) {
+        if (token.isCancelled()) {
+            return new Roads2DGeneratorBatchResult(nSeed, false, "Roads2DGeneratorBatch::generateAny(), cancelled", null);
+        }
+        Roads2DGenerator generator = new Roads2DGenerator();
+        generator.getConfig().copyFrom(config).setSeedInitRandom(nSeed);
+        try {
+            Roads2DGenerator.Roads2DGeneratorStatus nStatus = generator.generate(timeout, token);
+            if (nStatus == Roads2DGenerator.Roads2DGeneratorStatus.SUCCESS) {
+                token.cancel();
+            }
+            return new Roads2DGeneratorBatchResult(nSeed, nStatus == Roads2DGenerator.Roads2DGeneratorStatus.SUCCESS,
+                generator.getErrorMessage(), generator);
+        } catch (RuntimeException e) {
+            return new Roads2DGeneratorBatchResult(nSeed, false, "Roads2DGeneratorBatch::generateAny(), " + e, generator);
+        }
+    }
+
+    // the caller can change its config while the batch is running
+    private Roads2DGenerator.Roads2DGeneratorConfig snapshot(Roads2DGenerator.Roads2DGeneratorConfig baseConfig) {
+        return new Roads2DGenerator().getConfig().copyFrom(baseConfig);
+    }
+
+    // result of the future or failed result, null if the task (listener) finished without result
+    private Roads2DGeneratorBatchResult waitFor(Future<?> future, int nSeed) {
+        try {
+            Object result = future.get();
+            return result instanceof Roads2DGeneratorBatchResult ? (Roads2DGeneratorBatchResult) result : null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Roads2DGeneratorBatchResult(nSeed, false, "Roads2DGeneratorBatch::generate(), interrupted", null);
+        } catch (ExecutionException e) {
+            return new Roads2DGeneratorBatchResult(nSeed, false, "Roads2DGeneratorBatch::generate(), " + e.getCause(), null);
+        }
+    }
+}
@@ -0,0 +1,399 @@
+/*
+MIT License
+
+Copyright (c) 2021-2025 Evgenii Sopov (mrseakg@gmail.com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+// original source-code: https://github.com/sea5kg/Roads2DGenerator
+
+package src;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Roads2DGeneratorBinaryMap - compact binary file with the pixel map.
+// All numbers are little-endian:
+//   0  4  magic "R2DM"
+//   4  2  version (1)
+//   6  2  flags (FLAG_RUN_LENGTH)
+//   8  4  width
+//  12  4  height
+//  16  4  seed
+//  20  4  density (float)
+//  24  8  reserved (zero)
+//  32 ... rows
+// Without FLAG_RUN_LENGTH rows are bit-packed words like in Roads2DGeneratorBitGrid
+// ((width + 63) / 64 longs per row, bit i of word w is the cell w * 64 + i), so any cell is read directly.
+// With FLAG_RUN_LENGTH there is a table of (height + 1) offsets of rows (from the start of the map) first and every row
+// starts with its kind: ROW_WORDS (the same words as above) or ROW_RUNS (varints with lengths of runs
+// of empty and road cells in turn, starting with empty ones), the writer takes the shorter kind for every row.
+public class Roads2DGeneratorBinaryMap {
+    public static final int VERSION = 1;
+    public static final int FLAG_RUN_LENGTH = 1;
+
+    private static final byte[] MAGIC = { 'R', '2', 'D', 'M' };
+    private static final int HEADER_SIZE = 32;
+    private static final int ROW_WORDS = 0;
+    private static final int ROW_RUNS = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+    // one MappedByteBuffer can not be bigger than 2 GB, so the file is mapped by segments
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+    // segments overlap, so a long (or a row kind with a varint) never crosses a segment border
+    private static final int SEGMENT_OVERLAP = 16;
+
+    public static void write(Roads2DGenerator generator, String sFilepath, boolean bRunLength) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(sFilepath),
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(generator, channel, bRunLength);
+        }
+    }
+
+    // the channel is written from its current position, offsets of rows are counted from this position,
+    // so read such a map with the reader which starts at the same position
+    public static void write(Roads2DGenerator generator, FileChannel channel, boolean bRunLength) throws IOException {
+        Roads2DGenerator.Roads2DGeneratorBitGrid grid = generator.getPixelMapGrid();
+        Roads2DGenerator.Roads2DGeneratorConfig config = generator.getConfig();
+        int nWidth = grid.getWidth();
+        int nHeight = grid.getHeight();
+        int nWordsPerRow = grid.getWordsPerRow();
+        long nStart = channel.position();
+
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(BUFFER_SIZE, 1 + nWordsPerRow * 8)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(MAGIC);
+        buffer.putShort((short)VERSION);
+        buffer.putShort((short)(bRunLength ? FLAG_RUN_LENGTH : 0));
+        buffer.putInt(nWidth);
+        buffer.putInt(nHeight);
+        buffer.putInt(config.getSeedInitRandom());
+        buffer.putFloat(config.getDensity());
+        buffer.putLong(0L);
+
+        if (!bRunLength) {
+            for (int y = 0; y < nHeight; y++) {
+                if (buffer.remaining() < nWordsPerRow * 8) {
+                    writeFully(channel, buffer);
+                }
+                for (int w = 0; w < nWordsPerRow; w++) {
+                    buffer.putLong(grid.getWord(w, y));
+                }
+            }
+            writeFully(channel, buffer);
+            return;
+        }
+
+        // the table of offsets is filled when rows are written
+        writeFully(channel, buffer);
+        long nTablePos = nStart + HEADER_SIZE;
+        long[] vOffsets = new long[nHeight + 1];
+        long nPos = nTablePos + 8L * vOffsets.length;
+        channel.position(nPos);
+        byte[] vRuns = new byte[nWordsPerRow * 8];
+        for (int y = 0; y < nHeight; y++) {
+            vOffsets[y] = nPos - nStart;
+            int nRunsSize = encodeRuns(grid, y, vRuns);
+            int nRowSize = nRunsSize >= 0 ? 1 + nRunsSize : 1 + nWordsPerRow * 8;
+            if (buffer.remaining() < nRowSize) {
+                writeFully(channel, buffer);
+            }
+            if (nRunsSize >= 0) {
+                buffer.put((byte)ROW_RUNS);
+                buffer.put(vRuns, 0, nRunsSize);
+            } else {
+                buffer.put((byte)ROW_WORDS);
+                for (int w = 0; w < nWordsPerRow; w++) {
+                    buffer.putLong(grid.getWord(w, y));
+                }
+            }
+            nPos += nRowSize;
+        }
+        vOffsets[nHeight] = nPos - nStart;
+        writeFully(channel, buffer);
+
+        channel.position(nTablePos);
+        for (long nOffset : vOffsets) {
+            if (buffer.remaining() < 8) {
+                writeFully(channel, buffer);
+            }
+            buffer.putLong(nOffset);
+        }
+        writeFully(channel, buffer);
+        channel.position(nPos);
+    }
+
+    public static Roads2DGeneratorBinaryMapReader open(String sFilepath) throws IOException {
+        return open(sFilepath, 0);
+    }
+
+    // nStart - position of the map in the file (where write() started)
+    public static Roads2DGeneratorBinaryMapReader open(String sFilepath, long nStart) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(sFilepath), StandardOpenOption.READ)) {
+            return new Roads2DGeneratorBinaryMapReader(channel, nStart);
+        }
+    }
+
+    // Roads2DGeneratorBinaryMapReader - memory-mapped file, cells are read straight from the mapping
+    public static class Roads2DGeneratorBinaryMapReader implements Closeable {
+        private MappedByteBuffer[] m_vSegments; // null after close()
+        private final int m_nVersion;
+        private final int m_nFlags;
+        private final int m_nWidth;
+        private final int m_nHeight;
+        private final int m_nSeed;
+        private final float m_nDensity;
+        private final int m_nWordsPerRow;
+
+        // the mapping stays valid after the channel is closed
+        public Roads2DGeneratorBinaryMapReader(FileChannel channel) throws IOException {
+            this(channel, 0);
+        }
+
+        // nStart - position of the map in the channel, all positions below are counted from it
+        public Roads2DGeneratorBinaryMapReader(FileChannel channel, long nStart) throws IOException {
+            if (nStart < 0 || nStart > channel.size()) {
+                throw new IOException("Roads2DGeneratorBinaryMap, start " + nStart + " is outside of the file");
+            }
+            long nSize = channel.size() - nStart;
+            if (nSize < HEADER_SIZE) {
+                throw new IOException("Roads2DGeneratorBinaryMap, file is too small for the header");
+            }
+            int nSegments = (int)((nSize + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+            m_vSegments = new MappedByteBuffer[nSegments];
+            for (int i = 0; i < nSegments; i++) {
+                long nFrom = (long)i << SEGMENT_SHIFT;
+                long nLength = Math.min(nSize - nFrom, (1L << SEGMENT_SHIFT) + SEGMENT_OVERLAP);
+                m_vSegments[i] = channel.map(FileChannel.MapMode.READ_ONLY, nStart + nFrom, nLength);
+                m_vSegments[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+
+            ByteBuffer header = m_vSegments[0];
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (header.get(i) != MAGIC[i]) {
+                    throw new IOException("Roads2DGeneratorBinaryMap, wrong magic, it is not a binary map");
+                }
+            }
+            m_nVersion = header.getShort(4) & 0xFFFF;
+            if (m_nVersion != VERSION) {
+                throw new IOException("Roads2DGeneratorBinaryMap, unsupported version " + m_nVersion);
+            }
+            m_nFlags = header.getShort(6) & 0xFFFF;
+            m_nWidth = header.getInt(8);
+            m_nHeight = header.getInt(12);
+            m_nSeed = header.getInt(16);
+            m_nDensity = header.getFloat(20);
+            if (m_nWidth < 0 || m_nHeight < 0) {
+                throw new IOException("Roads2DGeneratorBinaryMap, wrong size " + m_nWidth + "x" + m_nHeight);
+            }
+            m_nWordsPerRow = (m_nWidth + 63) >>> 6;
+            long nExpected = isRunLengthEncoded()
+                ? HEADER_SIZE + 8L * (m_nHeight + 1)
+                : HEADER_SIZE + 8L * m_nWordsPerRow * m_nHeight;
+            if (nSize < nExpected || (isRunLengthEncoded() && getLong(getRowOffset(m_nHeight)) > nSize)) {
+                throw new IOException("Roads2DGeneratorBinaryMap, file is truncated");
+            }
+        }
+
+        public int getVersion() {
+            return m_nVersion;
+        }
+
+        public boolean isRunLengthEncoded() {
+            return (m_nFlags & FLAG_RUN_LENGTH) != 0;
+        }
+
+        public int getWidth() {
+            return m_nWidth;
+        }
+
+        public int getHeight() {
+            return m_nHeight;
+        }
+
+        public int getSeed() {
+            return m_nSeed;
+        }
+
+        public float getDensity() {
+            return m_nDensity;
+        }
+
+        public int getWordsPerRow() {
+            return m_nWordsPerRow;
+        }
+
+        // x, y must be inside of the map
+        public boolean get(int x, int y) {
+            if (!isRunLengthEncoded()) {
+                return ((getLong(HEADER_SIZE + 8L * ((long)y * m_nWordsPerRow + (x >>> 6))) >>> x) & 1L) != 0;
+            }
+            long nPos = getLong(getRowOffset(y));
+            if (getByte(nPos) == ROW_WORDS) {
+                return ((getLong(nPos + 1 + 8L * (x >>> 6)) >>> x) & 1L) != 0;
+            }
+            nPos++;
+            boolean bRoad = false;
+            int nCell = 0;
+            while (true) {
+                int nRun = 0;
+                int nShift = 0;
+                int b;
+                do {
+                    b = getByte(nPos++);
+                    nRun |= (b & 0x7F) << nShift;
+                    nShift += 7;
+                } while ((b & 0x80) != 0);
+                nCell += nRun;
+                if (x < nCell) {
+                    return bRoad;
+                }
+                bRoad = !bRoad;
+            }
+        }
+
+        // vWords gets the bit-packed row, at least getWordsPerRow() longs
+        public void readRow(int y, long[] vWords) {
+            if (!isRunLengthEncoded()) {
+                long nPos = HEADER_SIZE + 8L * y * m_nWordsPerRow;
+                for (int w = 0; w < m_nWordsPerRow; w++) {
+                    vWords[w] = getLong(nPos + 8L * w);
+                }
+                return;
+            }
+            long nPos = getLong(getRowOffset(y));
+            if (getByte(nPos) == ROW_WORDS) {
+                for (int w = 0; w < m_nWordsPerRow; w++) {
+                    vWords[w] = getLong(nPos + 1 + 8L * w);
+                }
+                return;
+            }
+            nPos++;
+            Arrays.fill(vWords, 0, m_nWordsPerRow, 0L);
+            boolean bRoad = false;
+            int nCell = 0;
+            while (nCell < m_nWidth) {
+                int nRun = 0;
+                int nShift = 0;
+                int b;
+                do {
+                    b = getByte(nPos++);
+                    nRun |= (b & 0x7F) << nShift;
+                    nShift += 7;
+                } while ((b & 0x80) != 0);
+                if (bRoad) {
+                    setBits(vWords, nCell, Math.min(nCell + nRun, m_nWidth));
+                }
+                nCell += nRun;
+                bRoad = !bRoad;
+            }
+        }
+
+        // Drops the references to the mapping, the reader can not be used after it. Java has no way to unmap
+        // a file explicitly, the mapping is released when the GC collects the buffers, until then the file
+        // can stay locked on Windows (it can not be deleted or replaced there).
+        @Override
+        public void close() {
+            m_vSegments = null;
+        }
+
+        private long getRowOffset(int y) {
+            return HEADER_SIZE + 8L * y;
+        }
+
+        private long getLong(long nPos) {
+            return m_vSegments[(int)(nPos >>> SEGMENT_SHIFT)].getLong((int)(nPos & SEGMENT_MASK));
+        }
+
+        private int getByte(long nPos) {
+            return m_vSegments[(int)(nPos >>> SEGMENT_SHIFT)].get((int)(nPos & SEGMENT_MASK)) & 0xFF;
+        }
+    }
+
+    // varints of runs into vOut, -1 if they do not fit (then words of the row are shorter)
+    private static int encodeRuns(Roads2DGenerator.Roads2DGeneratorBitGrid grid, int y, byte[] vOut) {
+        int nWidth = grid.getWidth();
+        int nSize = 0;
+        int nCell = 0;
+        boolean bRoad = false;
+        while (nCell < nWidth) {
+            int nNext = findNextCell(grid, y, nCell, !bRoad);
+            int nRun = nNext - nCell;
+            while (true) {
+                if (nSize >= vOut.length) {
+                    return -1;
+                }
+                if ((nRun & ~0x7F) == 0) {
+                    vOut[nSize++] = (byte)nRun;
+                    break;
+                }
+                vOut[nSize++] = (byte)((nRun & 0x7F) | 0x80);
+                nRun >>>= 7;
+            }
+            nCell = nNext;
+            bRoad = !bRoad;
+        }
+        return nSize;
+    }
+
+    // the first x >= nFrom where the cell is bRoad, the width if there is no such one
+    private static int findNextCell(Roads2DGenerator.Roads2DGeneratorBitGrid grid, int y, int nFrom, boolean bRoad) {
+        int nWidth = grid.getWidth();
+        int w = nFrom >>> 6;
+        if (w >= grid.getWordsPerRow()) {
+            return nWidth;
+        }
+        long word = bRoad ? grid.getWord(w, y) : ~grid.getWord(w, y);
+        word &= -1L << nFrom;
+        while (word == 0) {
+            w++;
+            if (w >= grid.getWordsPerRow()) {
+                return nWidth;
+            }
+            word = bRoad ? grid.getWord(w, y) : ~grid.getWord(w, y);
+        }
+        return Math.min((w << 6) + Long.numberOfTrailingZeros(word), nWidth);
+    }
+
+    // cells [nFrom, nTo) are set
+    private static void setBits(long[] vWords, int nFrom, int nTo) {
+        for (int x = nFrom; x < nTo; ) {
+            int w = x >>> 6;
+            int nEnd = Math.min(nTo, (w + 1) << 6);
+            long mask = (nEnd - x == 64) ? -1L : ((1L << (nEnd - x)) - 1) << x;
+            vWords[w] |= mask;
+            x = nEnd;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
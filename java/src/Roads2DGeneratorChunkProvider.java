@@ -0,0 +1,427 @@
+/*
+MIT License
+
+Copyright (c) 2021-2025 Evgenii Sopov (mrseakg@gmail.com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+// original source-code: https://github.com/sea5kg/Roads2DGenerator
+
+package src;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// Roads2DGeneratorChunkProvider - unbounded world of square chunks generated on demand.
+// The chunk (cx, cy) covers the world cells cx * size .. cx * size + size - 1 (the same for y) and depends only on
+// the world seed, its position and the settings, so chunks can be generated in any order on any thread.
+// Roads cross the edge between two chunks at cells chosen from the seed and the edge alone, both chunks keep
+// the road there and connect it with their own roads, so the world is connected.
+// The settings and the world config are replaced as a whole and clear the cached chunks, so chunks of different
+// settings are never mixed; a request uses the settings which were current when it began.
+public class Roads2DGeneratorChunkProvider {
+
+    // Roads2DGeneratorChunk - generated chunk, do not change its grid
+    public class Roads2DGeneratorChunk {
+        private final int m_nChunkX;
+        private final int m_nChunkY;
+        private final int m_nSeed;
+        private final Roads2DGenerator.Roads2DGeneratorBitGrid m_grid;
+
+        public Roads2DGeneratorChunk(int nChunkX, int nChunkY, int nSeed, Roads2DGenerator.Roads2DGeneratorBitGrid grid) {
+            this.m_nChunkX = nChunkX;
+            this.m_nChunkY = nChunkY;
+            this.m_nSeed = nSeed;
+            this.m_grid = grid;
+        }
+
+        public int getChunkX() {
+            return m_nChunkX;
+        }
+
+        public int getChunkY() {
+            return m_nChunkY;
+        }
+
+        // seed of the attempt which succeeded
+        public int getSeed() {
+            return m_nSeed;
+        }
+
+        public int getSize() {
+            return m_grid.getWidth();
+        }
+
+        // x, y - cell inside of the chunk
+        public boolean get(int x, int y) {
+            return m_grid.get(x, y);
+        }
+
+        // not a copy, shared by everyone who requested the chunk
+        public Roads2DGenerator.Roads2DGeneratorBitGrid getGrid() {
+            return m_grid;
+        }
+    }
+
+    // Roads2DGeneratorChunkSettings - everything what changes chunks, not changed after creation
+    private class Roads2DGeneratorChunkSettings {
+        private final Roads2DGenerator.Roads2DGeneratorConfig m_config;
+        private final int m_nChunkSize;
+        private final int m_nMaxCrossingsPerEdge;
+        private final int m_nMaxChunkAttempts;
+
+        private Roads2DGeneratorChunkSettings(Roads2DGenerator.Roads2DGeneratorConfig config, int nChunkSize,
+                                              int nMaxCrossingsPerEdge, int nMaxChunkAttempts) {
+            this.m_config = config;
+            this.m_nChunkSize = nChunkSize;
+            this.m_nMaxCrossingsPerEdge = nMaxCrossingsPerEdge;
+            this.m_nMaxChunkAttempts = nMaxChunkAttempts;
+        }
+    }
+
+    private volatile Roads2DGeneratorChunkSettings m_settings; // replaced under m_lock together with clearing of the chunks
+    private int m_nMaxCachedChunks;
+    private final Object m_lock;
+    private final LinkedHashMap<Long, CompletableFuture<Roads2DGeneratorChunk>> m_cache; // generated chunks in access order, guarded by m_lock
+    private final HashMap<Long, CompletableFuture<Roads2DGeneratorChunk>> m_generating; // not evicted, guarded by m_lock
+    private long m_nCountHits; // counters guarded by m_lock, only grow
+    private long m_nCountMisses;
+    private long m_nCountCollapsed;
+    private long m_nCountEvictions;
+    private long m_nCountFailed;
+    private long m_nGenerationNanos;
+    private volatile String m_sErrorMessage;
+
+    public Roads2DGeneratorChunkProvider() {
+        m_settings = new Roads2DGeneratorChunkSettings(new Roads2DGenerator().getConfig(), 64, 2, 8);
+        m_nMaxCachedChunks = 256;
+        m_lock = new Object();
+        m_cache = new LinkedHashMap<Long, CompletableFuture<Roads2DGeneratorChunk>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CompletableFuture<Roads2DGeneratorChunk>> eldest) {
+                if (size() <= m_nMaxCachedChunks) {
+                    return false;
+                }
+                m_nCountEvictions++;
+                return true;
+            }
+        };
+        m_generating = new HashMap<>();
+        m_sErrorMessage = "";
+    }
+
+    // a copy of the config of the world, change it and pass to setConfig()
+    public Roads2DGenerator.Roads2DGeneratorConfig getConfig() {
+        return snapshot(m_settings.m_config);
+    }
+
+    // config of the world: seed, density and modes; width, height and presets are not used.
+    // A snapshot is taken, later changes of config are not seen.
+    public Roads2DGeneratorChunkProvider setConfig(Roads2DGenerator.Roads2DGeneratorConfig config) {
+        Roads2DGenerator.Roads2DGeneratorConfig world = snapshot(config);
+        synchronized (m_lock) {
+            Roads2DGeneratorChunkSettings settings = m_settings;
+            replaceSettings(new Roads2DGeneratorChunkSettings(world, settings.m_nChunkSize,
+                settings.m_nMaxCrossingsPerEdge, settings.m_nMaxChunkAttempts));
+        }
+        return this;
+    }
+
+    public Roads2DGeneratorChunkProvider setChunkSize(int nChunkSize) {
+        synchronized (m_lock) {
+            Roads2DGeneratorChunkSettings settings = m_settings;
+            replaceSettings(new Roads2DGeneratorChunkSettings(settings.m_config, Math.max(nChunkSize, 16),
+                settings.m_nMaxCrossingsPerEdge, settings.m_nMaxChunkAttempts));
+        }
+        return this;
+    }
+
+    public int getChunkSize() {
+        return m_settings.m_nChunkSize;
+    }
+
+    // every edge between two chunks is crossed by 1..nMaxCrossings roads
+    public Roads2DGeneratorChunkProvider setMaxCrossingsPerEdge(int nMaxCrossings) {
+        synchronized (m_lock) {
+            Roads2DGeneratorChunkSettings settings = m_settings;
+            replaceSettings(new Roads2DGeneratorChunkSettings(settings.m_config, settings.m_nChunkSize,
+                Math.max(nMaxCrossings, 1), settings.m_nMaxChunkAttempts));
+        }
+        return this;
+    }
+
+    // every attempt of a chunk uses the next derived seed
+    public Roads2DGeneratorChunkProvider setMaxChunkAttempts(int nMaxChunkAttempts) {
+        synchronized (m_lock) {
+            Roads2DGeneratorChunkSettings settings = m_settings;
+            replaceSettings(new Roads2DGeneratorChunkSettings(settings.m_config, settings.m_nChunkSize,
+                settings.m_nMaxCrossingsPerEdge, Math.max(nMaxChunkAttempts, 1)));
+        }
+        return this;
+    }
+
+    // least recently used chunks are evicted above this count and generated again on the next request,
+    // chunks which are still generating are not counted
+    public Roads2DGeneratorChunkProvider setMaxCachedChunks(int nMaxCachedChunks) {
+        synchronized (m_lock) {
+            m_nMaxCachedChunks = Math.max(nMaxCachedChunks, 1);
+        }
+        return this;
+    }
+
+    // error of the last chunk which could not be generated
+    public String getErrorMessage() {
+        return m_sErrorMessage;
+    }
+
+    // The first request of a chunk generates it on the calling thread, concurrent requests of the same chunk
+    // wait for this generation instead of starting their own. null if all attempts failed, see getErrorMessage();
+    // such a chunk is cached as null too (the same attempts would fail again) until it is evicted or clearCache().
+    public Roads2DGeneratorChunk getChunk(int nChunkX, int nChunkY) {
+        return getChunk(nChunkX, nChunkY, m_settings);
+    }
+
+    // true if the world cell is a road, generates its chunk if needed;
+    // the world has int chunk coordinates, cells outside of it are rejected with IllegalArgumentException
+    public boolean isRoad(long x, long y) {
+        Roads2DGeneratorChunkSettings settings = m_settings;
+        long nSize = settings.m_nChunkSize;
+        long nChunkX = Math.floorDiv(x, nSize);
+        long nChunkY = Math.floorDiv(y, nSize);
+        if (nChunkX != (int)nChunkX || nChunkY != (int)nChunkY) {
+            throw new IllegalArgumentException("Roads2DGeneratorChunkProvider::isRoad(), cell " + x + ", " + y + " is outside of the world");
+        }
+        Roads2DGeneratorChunk chunk = getChunk((int)nChunkX, (int)nChunkY, settings);
+        return chunk != null && chunk.get((int)Math.floorMod(x, nSize), (int)Math.floorMod(y, nSize));
+    }
+
+    // requests served from the cache
+    public long getCountHits() {
+        synchronized (m_lock) {
+            return m_nCountHits;
+        }
+    }
+
+    // requests which generated the chunk
+    public long getCountMisses() {
+        synchronized (m_lock) {
+            return m_nCountMisses;
+        }
+    }
+
+    // requests which waited for the generation started by another request
+    public long getCountCollapsed() {
+        synchronized (m_lock) {
+            return m_nCountCollapsed;
+        }
+    }
+
+    public long getCountEvictions() {
+        synchronized (m_lock) {
+            return m_nCountEvictions;
+        }
+    }
+
+    // generations where all attempts failed
+    public long getCountFailed() {
+        synchronized (m_lock) {
+            return m_nCountFailed;
+        }
+    }
+
+    // share of requests which did not generate the chunk, 0 if there were no requests
+    public double getHitRatio() {
+        synchronized (m_lock) {
+            long nRequests = m_nCountHits + m_nCountCollapsed + m_nCountMisses;
+            return nRequests == 0 ? 0.0 : (double)(m_nCountHits + m_nCountCollapsed) / nRequests;
+        }
+    }
+
+    // time of all generations, for all threads together
+    public long getGenerationNanos() {
+        synchronized (m_lock) {
+            return m_nGenerationNanos;
+        }
+    }
+
+    public int getCountCachedChunks() {
+        synchronized (m_lock) {
+            return m_cache.size();
+        }
+    }
+
+    // chunks which are generating now are cached when they are done
+    public void clearCache() {
+        synchronized (m_lock) {
+            m_cache.clear();
+        }
+    }
+
+    // guarded by m_lock; generations of the old settings are finished for their requests but not cached
+    private void replaceSettings(Roads2DGeneratorChunkSettings settings) {
+        m_settings = settings;
+        m_cache.clear();
+        m_generating.clear();
+    }
+
+    private static Roads2DGenerator.Roads2DGeneratorConfig snapshot(Roads2DGenerator.Roads2DGeneratorConfig config) {
+        return new Roads2DGenerator().getConfig().copyFrom(config);
+    }
+
+    // Generation is moved into the cache only when it is done, so the eviction never drops a chunk which others
+    // wait for. The request of settings which were replaced meanwhile generates its chunk without caching it.
+    private Roads2DGeneratorChunk getChunk(int nChunkX, int nChunkY, Roads2DGeneratorChunkSettings settings) {
+        Long key = ((long)nChunkX << 32) | (nChunkY & 0xFFFFFFFFL);
+        CompletableFuture<Roads2DGeneratorChunk> future;
+        boolean bGenerate = false;
+        synchronized (m_lock) {
+            boolean bCurrent = settings == m_settings;
+            future = bCurrent ? m_cache.get(key) : null;
+            if (future != null) {
+                m_nCountHits++;
+            } else {
+                future = bCurrent ? m_generating.get(key) : null;
+                if (future != null) {
+                    m_nCountCollapsed++;
+                } else {
+                    m_nCountMisses++;
+                    future = new CompletableFuture<>();
+                    if (bCurrent) {
+                        m_generating.put(key, future);
+                    }
+                    bGenerate = true;
+                }
+            }
+        }
+        if (!bGenerate) {
+            return future.join();
+        }
+
+        long nStartTime = System.nanoTime();
+        Roads2DGeneratorChunk chunk = null;
+        boolean bGenerated = false;
+        try {
+            chunk = generateChunk(nChunkX, nChunkY, settings);
+            bGenerated = true;
+        } finally {
+            synchronized (m_lock) {
+                m_nGenerationNanos += System.nanoTime() - nStartTime;
+                if (chunk == null) {
+                    m_nCountFailed++;
+                }
+                future.complete(chunk);
+                // not cached after an exception (the next request tries again) or if the settings were replaced
+                if (m_generating.remove(key, future) && bGenerated) {
+                    m_cache.put(key, future);
+                }
+            }
+        }
+        return chunk;
+    }
+
+    // null if all attempts failed
+    private Roads2DGeneratorChunk generateChunk(int nChunkX, int nChunkY, Roads2DGeneratorChunkSettings settings) {
+        Roads2DGenerator.Roads2DGeneratorConfig world = settings.m_config;
+        int nSize = settings.m_nChunkSize;
+        int nWorldSeed = world.getSeedInitRandom();
+        Roads2DGenerator generator = new Roads2DGenerator();
+
+        // crossings of the four edges: the border cell and the cell inside next to it
+        Roads2DGenerator.Roads2DGeneratorBitGrid fixedRoads = generator.new Roads2DGeneratorBitGrid(nSize, nSize);
+        List<Roads2DGenerator.Roads2DGeneratorPoint> vEntries = new ArrayList<>();
+        for (int p : getEdgeCrossings(settings, true, nChunkX, nChunkY)) {
+            addCrossing(generator, fixedRoads, vEntries, 0, p, 1, p);
+        }
+        for (int p : getEdgeCrossings(settings, true, nChunkX + 1, nChunkY)) {
+            addCrossing(generator, fixedRoads, vEntries, nSize - 1, p, nSize - 2, p);
+        }
+        for (int p : getEdgeCrossings(settings, false, nChunkX, nChunkY)) {
+            addCrossing(generator, fixedRoads, vEntries, p, 0, p, 1);
+        }
+        for (int p : getEdgeCrossings(settings, false, nChunkX, nChunkY + 1)) {
+            addCrossing(generator, fixedRoads, vEntries, p, nSize - 1, p, nSize - 2);
+        }
+        Roads2DGenerator.Roads2DGeneratorBitGrid fixed = generator.new Roads2DGeneratorBitGrid(nSize, nSize);
+        fixed.orGrid(fixedRoads, 0, 0);
+        fixed.fillBorder(true);
+
+        generator.getConfig()
+            .setWidth(nSize)
+            .setHeight(nSize)
+            .setDensity(world.getDensity())
+            .setMoveDiagonalTailsMode(world.getMoveDiagonalTailsMode())
+            .setCellularMode(world.getCellularMode())
+            .setInitPointsMode(world.getInitPointsMode())
+            .setRandomMode(world.getRandomMode())
+            .setRandomStream(world.getRandomStream())
+            .setDebug(world.isDebug())
+            .setPresetExcludesMask(fixed)
+        ;
+        for (int nAttempt = 0; nAttempt < settings.m_nMaxChunkAttempts; nAttempt++) {
+            int nSeed = Roads2DGenerator.deriveSeed(nWorldSeed, nChunkX, nChunkY, nAttempt);
+            generator.getConfig().setSeedInitRandom(nSeed);
+            if (generator.generateRegion(fixedRoads, vEntries)) {
+                return new Roads2DGeneratorChunk(nChunkX, nChunkY, nSeed, generator.getPixelMapGrid());
+            }
+        }
+        m_sErrorMessage = "Roads2DGeneratorChunkProvider::getChunk(), could not generate chunk "
+            + nChunkX + "x" + nChunkY + " in " + settings.m_nMaxChunkAttempts + " attempts, last error: " + generator.getErrorMessage();
+        System.err.println(m_sErrorMessage);
+        return null;
+    }
+
+    private static void addCrossing(Roads2DGenerator generator, Roads2DGenerator.Roads2DGeneratorBitGrid fixedRoads,
+                                    List<Roads2DGenerator.Roads2DGeneratorPoint> vEntries, int bx, int by, int x, int y) {
+        fixedRoads.set(bx, by, true);
+        fixedRoads.set(x, y, true);
+        vEntries.add(generator.new Roads2DGeneratorPoint(x, y));
+    }
+
+    // Positions of roads across the edge, the same for both chunks of it. The vertical edge (ex, ey) is the left edge
+    // of the chunk (ex, ey), the horizontal one is its top edge. Positions are 3 cells away from the corners and
+    // from each other, so crossings never make 2x2 blocks or diagonal tails with each other.
+    private int[] getEdgeCrossings(Roads2DGeneratorChunkSettings settings, boolean bVertical, int ex, int ey) {
+        int nRange = settings.m_nChunkSize - 6; // positions 3 .. size - 4
+        long z = Roads2DGenerator.mix64(((long)settings.m_config.getSeedInitRandom() << 32)
+            ^ (ex * 0x9E3779B97F4A7C15L)
+            ^ (ey * 0xC2B2AE3D27D4EB4FL)
+            ^ (bVertical ? 0x165667B19E3779F9L : 0L));
+        int nCount = 1 + (int)Long.remainderUnsigned(z, settings.m_nMaxCrossingsPerEdge);
+        int[] vPositions = new int[nCount];
+        int nFound = 0;
+        for (int nDraw = 0; nDraw < nCount * 4 && nFound < nCount; nDraw++) {
+            z = Roads2DGenerator.mix64(z + 0x9E3779B97F4A7C15L);
+            int nPos = 3 + (int)Long.remainderUnsigned(z, nRange);
+            boolean bFar = true;
+            for (int i = 0; i < nFound && bFar; i++) {
+                bFar = Math.abs(vPositions[i] - nPos) >= 3;
+            }
+            if (bFar) {
+                vPositions[nFound++] = nPos;
+            }
+        }
+        return Arrays.copyOf(vPositions, nFound);
+    }
+}
@@ -0,0 +1,329 @@
+/*
+MIT License
+
+Copyright (c) 2021-2025 Evgenii Sopov (mrseakg@gmail.com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+// original source-code: https://github.com/sea5kg/Roads2DGenerator
+
+package src;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+// Roads2DGeneratorImageWriter - PBM, PGM and PNG images of the pixel map.
+// Images are encoded row by row straight from the grid of the generator, only one scanline is kept in memory.
+// Every cell becomes scale x scale pixels; with colour-coding road cells get the colour of their road part
+// (see Roads2DGenerator.exportLikeTileCodes()), otherwise roads are white and empty cells are black.
+public class Roads2DGeneratorImageWriter {
+    private static final byte[] PNG_SIGNATURE = { (byte)137, 'P', 'N', 'G', '\r', '\n', 26, '\n' };
+    private static final int PNG_CHUNK_SIZE = 1 << 16;
+
+    private final Roads2DGenerator m_generator;
+    private int m_nScale;
+    private boolean m_bColorByRoadPart;
+    // colour by the tile code (Roads2DGenerator.Roads2DGeneratorRoadPart.getCode())
+    private final int[] m_vRoadPartColors;
+    private int m_nPngCompressionLevel;
+    private String m_sErrorMessage;
+
+    public Roads2DGeneratorImageWriter(Roads2DGenerator generator) {
+        m_generator = generator;
+        m_nScale = 1;
+        m_bColorByRoadPart = false;
+        m_vRoadPartColors = new int[Roads2DGenerator.Roads2DGeneratorRoadPart.values().length];
+        setRoadPartColor("unknown", 0xFF00FF);
+        setRoadPartColor("horizontal", 0x4080FF);
+        setRoadPartColor("vertical", 0x40C0FF);
+        setRoadPartColor("left-up", 0x40C040);
+        setRoadPartColor("right-up", 0x40C040);
+        setRoadPartColor("left-down", 0x40C040);
+        setRoadPartColor("right-down", 0x40C040);
+        setRoadPartColor("left-right-up", 0xFFA000);
+        setRoadPartColor("left-right-down", 0xFFA000);
+        setRoadPartColor("left-up-down", 0xFFA000);
+        setRoadPartColor("right-up-down", 0xFFA000);
+        setRoadPartColor("cross", 0xFF2020);
+        m_nPngCompressionLevel = Deflater.DEFAULT_COMPRESSION;
+        m_sErrorMessage = "";
+    }
+
+    // every cell becomes nScale x nScale pixels
+    public Roads2DGeneratorImageWriter setScale(int nScale) {
+        m_nScale = Math.max(nScale, 1);
+        return this;
+    }
+
+    public Roads2DGeneratorImageWriter setColorByRoadPart(boolean bColorByRoadPart) {
+        m_bColorByRoadPart = bColorByRoadPart;
+        return this;
+    }
+
+    // nRgb - 0xRRGGBB, used with colour-coding
+    public Roads2DGeneratorImageWriter setEmptyColor(int nRgb) {
+        m_vRoadPartColors[Roads2DGenerator.Roads2DGeneratorRoadPart.EMPTY.getCode()] = nRgb & 0xFFFFFF;
+        return this;
+    }
+
+    // sRoadPart - name from exportLikeTable(), for example "cross" or "left-up"; nRgb - 0xRRGGBB
+    public Roads2DGeneratorImageWriter setRoadPartColor(String sRoadPart, int nRgb) {
+        Roads2DGenerator.Roads2DGeneratorRoadPart part = Roads2DGenerator.Roads2DGeneratorRoadPart.fromName(sRoadPart);
+        if (part != null && part != Roads2DGenerator.Roads2DGeneratorRoadPart.EMPTY) {
+            setRoadPartColor(part, nRgb);
+        }
+        return this;
+    }
+
+    public Roads2DGeneratorImageWriter setRoadPartColor(Roads2DGenerator.Roads2DGeneratorRoadPart part, int nRgb) {
+        m_vRoadPartColors[part.getCode()] = nRgb & 0xFFFFFF;
+        return this;
+    }
+
+    // 0..9 like in java.util.zip.Deflater
+    public Roads2DGeneratorImageWriter setPngCompressionLevel(int nLevel) {
+        m_nPngCompressionLevel = Math.max(Math.min(nLevel, Deflater.BEST_COMPRESSION), Deflater.NO_COMPRESSION);
+        return this;
+    }
+
+    public String getErrorMessage() {
+        return m_sErrorMessage;
+    }
+
+    public boolean writePbmToFile(String sFilepath) {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(Paths.get(sFilepath)), PNG_CHUNK_SIZE)) {
+            writePbm(out);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            return onError("writePbmToFile", e);
+        }
+    }
+
+    public boolean writePgmToFile(String sFilepath) {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(Paths.get(sFilepath)), PNG_CHUNK_SIZE)) {
+            writePgm(out);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            return onError("writePgmToFile", e);
+        }
+    }
+
+    public boolean writePngToFile(String sFilepath) {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(Paths.get(sFilepath)), PNG_CHUNK_SIZE)) {
+            writePng(out);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            return onError("writePngToFile", e);
+        }
+    }
+
+    // binary 1-bit PBM (P4): roads are white, empty cells are black, colours are not used
+    public void writePbm(OutputStream out) throws IOException {
+        Roads2DGenerator.Roads2DGeneratorBitGrid grid = m_generator.getPixelMapGrid();
+        int nImageWidth = getImageSize(grid.getWidth());
+        int nImageHeight = getImageSize(grid.getHeight());
+        out.write(("P4\n" + nImageWidth + " " + nImageHeight + "\n").getBytes(StandardCharsets.US_ASCII));
+        byte[] vLine = new byte[(nImageWidth + 7) >>> 3];
+        for (int y = 0; y < grid.getHeight(); y++) {
+            Arrays.fill(vLine, (byte)0);
+            for (int x = 0; x < grid.getWidth(); x++) {
+                if (grid.get(x, y)) {
+                    continue;
+                }
+                // 1 is black in PBM
+                for (int px = x * m_nScale; px < (x + 1) * m_nScale; px++) {
+                    vLine[px >>> 3] |= (byte)(0x80 >>> (px & 7));
+                }
+            }
+            writeLine(out, vLine);
+        }
+        out.flush();
+    }
+
+    // binary 8-bit PGM (P5): with colour-coding every colour becomes its brightness
+    public void writePgm(OutputStream out) throws IOException {
+        Roads2DGenerator.Roads2DGeneratorBitGrid grid = m_generator.getPixelMapGrid();
+        int nImageWidth = getImageSize(grid.getWidth());
+        int nImageHeight = getImageSize(grid.getHeight());
+        out.write(("P5\n" + nImageWidth + " " + nImageHeight + "\n255\n").getBytes(StandardCharsets.US_ASCII));
+        byte[] vLine = new byte[nImageWidth];
+        byte[] vCodes = new byte[grid.getWidth()];
+        for (int y = 0; y < grid.getHeight(); y++) {
+            m_generator.exportLikeTileCodes(0, y, vCodes.length, 1, vCodes, 0, vCodes.length);
+            for (int x = 0; x < grid.getWidth(); x++) {
+                int nRgb = getColor(vCodes[x]);
+                int nGray = (((nRgb >>> 16) & 0xFF) * 299 + ((nRgb >>> 8) & 0xFF) * 587 + (nRgb & 0xFF) * 114) / 1000;
+                Arrays.fill(vLine, x * m_nScale, (x + 1) * m_nScale, (byte)nGray);
+            }
+            writeLine(out, vLine);
+        }
+        out.flush();
+    }
+
+    // PNG: 1-bit grayscale, or 8-bit RGB with colour-coding; IDAT chunks are written while rows are compressed
+    public void writePng(OutputStream out) throws IOException {
+        Roads2DGenerator.Roads2DGeneratorBitGrid grid = m_generator.getPixelMapGrid();
+        int nImageWidth = getImageSize(grid.getWidth());
+        int nImageHeight = getImageSize(grid.getHeight());
+        out.write(PNG_SIGNATURE);
+        byte[] vHeader = new byte[13];
+        putInt(vHeader, 0, nImageWidth);
+        putInt(vHeader, 4, nImageHeight);
+        vHeader[8] = (byte)(m_bColorByRoadPart ? 8 : 1); // bit depth
+        vHeader[9] = (byte)(m_bColorByRoadPart ? 2 : 0); // colour type: RGB or grayscale
+        writePngChunk(out, "IHDR", vHeader, vHeader.length);
+
+        // the first byte of every scanline is the filter type, 0 - none
+        byte[] vLine = new byte[1 + (m_bColorByRoadPart ? nImageWidth * 3 : (nImageWidth + 7) >>> 3)];
+        byte[] vCodes = new byte[grid.getWidth()];
+        Deflater deflater = new Deflater(m_nPngCompressionLevel);
+        try (DeflaterOutputStream idat = new DeflaterOutputStream(new PngDataStream(out), deflater, PNG_CHUNK_SIZE)) {
+            for (int y = 0; y < grid.getHeight(); y++) {
+                Arrays.fill(vLine, (byte)0);
+                if (m_bColorByRoadPart) {
+                    m_generator.exportLikeTileCodes(0, y, vCodes.length, 1, vCodes, 0, vCodes.length);
+                }
+                for (int x = 0; x < grid.getWidth(); x++) {
+                    if (m_bColorByRoadPart) {
+                        int nRgb = getColor(vCodes[x]);
+                        for (int px = x * m_nScale; px < (x + 1) * m_nScale; px++) {
+                            vLine[1 + px * 3] = (byte)(nRgb >>> 16);
+                            vLine[2 + px * 3] = (byte)(nRgb >>> 8);
+                            vLine[3 + px * 3] = (byte)nRgb;
+                        }
+                    } else if (grid.get(x, y)) {
+                        for (int px = x * m_nScale; px < (x + 1) * m_nScale; px++) {
+                            vLine[1 + (px >>> 3)] |= (byte)(0x80 >>> (px & 7));
+                        }
+                    }
+                }
+                writeLine(idat, vLine);
+            }
+        } finally {
+            deflater.end();
+        }
+        writePngChunk(out, "IEND", new byte[0], 0);
+        out.flush();
+    }
+
+    private int getColor(byte nCode) {
+        if (!m_bColorByRoadPart) {
+            return nCode != Roads2DGenerator.Roads2DGeneratorRoadPart.EMPTY.getCode() ? 0xFFFFFF : 0x000000;
+        }
+        return m_vRoadPartColors[nCode];
+    }
+
+    // the same scanline is repeated for every pixel row of the cell
+    private void writeLine(OutputStream out, byte[] vLine) throws IOException {
+        for (int i = 0; i < m_nScale; i++) {
+            out.write(vLine);
+        }
+    }
+
+    private int getImageSize(int nCells) {
+        long nSize = (long)nCells * m_nScale;
+        if (nSize > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("image is too big: " + nCells + " cells with scale " + m_nScale);
+        }
+        return (int)nSize;
+    }
+
+    private boolean onError(String sMethod, Exception e) {
+        m_sErrorMessage = "Roads2DGeneratorImageWriter::" + sMethod + "(), " + e.getMessage();
+        System.err.println(m_sErrorMessage);
+        return false;
+    }
+
+    private static void writePngChunk(OutputStream out, String sType, byte[] vData, int nLength) throws IOException {
+        byte[] vType = sType.getBytes(StandardCharsets.US_ASCII);
+        byte[] vInt = new byte[4];
+        putInt(vInt, 0, nLength);
+        out.write(vInt);
+        out.write(vType);
+        out.write(vData, 0, nLength);
+        CRC32 crc = new CRC32();
+        crc.update(vType);
+        crc.update(vData, 0, nLength);
+        putInt(vInt, 0, (int)crc.getValue());
+        out.write(vInt);
+    }
+
+    private static void putInt(byte[] vOut, int nOffset, int nValue) {
+        vOut[nOffset] = (byte)(nValue >>> 24);
+        vOut[nOffset + 1] = (byte)(nValue >>> 16);
+        vOut[nOffset + 2] = (byte)(nValue >>> 8);
+        vOut[nOffset + 3] = (byte)nValue;
+    }
+
+    // PngDataStream - compressed bytes are cut into IDAT chunks, close() does not close the image stream
+    private static class PngDataStream extends OutputStream {
+        private final OutputStream m_out;
+        private final byte[] m_vChunk;
+        private int m_nSize;
+
+        PngDataStream(OutputStream out) {
+            m_out = out;
+            m_vChunk = new byte[PNG_CHUNK_SIZE];
+            m_nSize = 0;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (m_nSize == m_vChunk.length) {
+                flushChunk();
+            }
+            m_vChunk[m_nSize++] = (byte)b;
+        }
+
+        @Override
+        public void write(byte[] vData, int nOffset, int nLength) throws IOException {
+            while (nLength > 0) {
+                if (m_nSize == m_vChunk.length) {
+                    flushChunk();
+                }
+                int nCount = Math.min(nLength, m_vChunk.length - m_nSize);
+                System.arraycopy(vData, nOffset, m_vChunk, m_nSize, nCount);
+                m_nSize += nCount;
+                nOffset += nCount;
+                nLength -= nCount;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flushChunk();
+        }
+
+        private void flushChunk() throws IOException {
+            if (m_nSize > 0) {
+                writePngChunk(m_out, "IDAT", m_vChunk, m_nSize);
+                m_nSize = 0;
+            }
+        }
+    }
+}
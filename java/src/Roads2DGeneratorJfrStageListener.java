@@ -0,0 +1,90 @@
+/*
+MIT License
+
+Copyright (c) 2021-2025 Evgenii Sopov (mrseakg@gmail.com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+// original source-code: https://github.com/sea5kg/Roads2DGenerator
+
+package src;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Roads2DGeneratorJfrStageListener - records every stage of generate() as JFR event "roads2dgen.Stage"
+// usage: generator.setStageListener(new Roads2DGeneratorJfrStageListener());
+public class Roads2DGeneratorJfrStageListener implements Roads2DGenerator.Roads2DGeneratorStageListener {
+
+    @Name("roads2dgen.Stage")
+    @Label("Roads2DGenerator Stage")
+    @Category("Roads2DGenerator")
+    @Description("One stage of Roads2DGenerator.generate()")
+    public static class StageEvent extends Event {
+        @Label("Stage")
+        public String stage;
+
+        @Label("Step")
+        public int step;
+
+        @Label("Success")
+        public boolean success;
+
+        @Label("Loop Iterations")
+        public long loopIterations;
+
+        @Label("Cells Changed")
+        public long cellsChanged;
+
+        @Label("Full Scans")
+        public long fullScans;
+    }
+
+    // stages do not overlap, so one event at a time (the listener is per generator, not thread-safe)
+    private StageEvent m_event;
+
+    @Override
+    public void onStageBegin(Roads2DGenerator.Roads2DGeneratorStage stage, int nStep) {
+        m_event = new StageEvent();
+        m_event.begin();
+    }
+
+    @Override
+    public void onStageEnd(Roads2DGenerator.Roads2DGeneratorStageStats stats) {
+        StageEvent event = m_event;
+        m_event = null;
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.stage = stats.getStage().name();
+            event.step = stats.getStep();
+            event.success = stats.isSuccess();
+            event.loopIterations = stats.getLoopIterations();
+            event.cellsChanged = stats.getCellsChanged();
+            event.fullScans = stats.getFullScans();
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,310 @@
+/*
+MIT License
+
+Copyright (c) 2021-2025 Evgenii Sopov (mrseakg@gmail.com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+// original source-code: https://github.com/sea5kg/Roads2DGenerator
+
+package src;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Roads2DGeneratorResultCache - maps of successful generate() by the canonical hash of the config
+// (see Roads2DGeneratorConfig.getCanonicalHash()). The memory tier keeps the least recently used maps up to
+// the byte limit, the optional disk tier keeps every map as a run-length Roads2DGeneratorBinaryMap file
+// <hash>.r2dm in the directory, so it survives restarts and can be shared by build jobs. Failed generations
+// are not cached. A hit gives the same map as generate() with this config.
+public class Roads2DGeneratorResultCache {
+    private static final String FILE_EXTENSION = ".r2dm";
+
+    private final Object m_lock;
+    private final LinkedHashMap<String, Roads2DGenerator.Roads2DGeneratorBitGrid> m_memory; // in access order, guarded by m_lock
+    private long m_nMaxMemoryBytes;
+    private long m_nMemoryBytes;
+    private Path m_diskDirectory; // null - no disk tier
+    private long m_nDiskBytes;
+    private long m_nCountMemoryHits; // counters guarded by m_lock, only grow
+    private long m_nCountDiskHits;
+    private long m_nCountMisses;
+    private long m_nCountEvictions;
+    private volatile String m_sErrorMessage;
+
+    public Roads2DGeneratorResultCache() {
+        m_lock = new Object();
+        m_memory = new LinkedHashMap<>(16, 0.75f, true);
+        m_nMaxMemoryBytes = 64L << 20;
+        m_nMemoryBytes = 0;
+        m_diskDirectory = null;
+        m_nDiskBytes = 0;
+        m_sErrorMessage = "";
+    }
+
+    // bytes of the packed maps in memory, maps bigger than this are kept only on disk
+    public Roads2DGeneratorResultCache setMaxMemoryBytes(long nMaxMemoryBytes) {
+        synchronized (m_lock) {
+            m_nMaxMemoryBytes = Math.max(nMaxMemoryBytes, 0);
+            evictOverLimit();
+        }
+        return this;
+    }
+
+    // null - memory only; the directory is created if needed, maps already there are used
+    public boolean setDiskDirectory(String sDirectory) {
+        if (sDirectory == null) {
+            synchronized (m_lock) {
+                m_diskDirectory = null;
+                m_nDiskBytes = 0;
+            }
+            return true;
+        }
+        Path directory = Paths.get(sDirectory);
+        long nDiskBytes = 0;
+        try {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + FILE_EXTENSION)) {
+                for (Path path : stream) {
+                    nDiskBytes += Files.size(path);
+                }
+            }
+        } catch (IOException e) {
+            m_sErrorMessage = "Roads2DGeneratorResultCache::setDiskDirectory(), " + e.getMessage();
+            System.err.println(m_sErrorMessage);
+            return false;
+        }
+        synchronized (m_lock) {
+            m_diskDirectory = directory;
+            m_nDiskBytes = nDiskBytes;
+        }
+        return true;
+    }
+
+    // error of the last disk operation, disk errors do not fail generate()
+    public String getErrorMessage() {
+        return m_sErrorMessage;
+    }
+
+    // generate() of the generator with its config, on a hit the map is loaded into the generator
+    // (like loadPixelMap()) instead; stats of the generator are updated only by a real generate()
+    public boolean generate(Roads2DGenerator generator) {
+        Roads2DGenerator.Roads2DGeneratorConfig config = generator.getConfig();
+        String sKey = config.getCanonicalHash();
+        Roads2DGenerator.Roads2DGeneratorBitGrid cached;
+        Path diskDirectory;
+        synchronized (m_lock) {
+            cached = m_memory.get(sKey);
+            if (cached != null) {
+                m_nCountMemoryHits++;
+            }
+            diskDirectory = m_diskDirectory;
+        }
+        if (cached != null) {
+            generator.loadPixelMap(copyGrid(generator, cached));
+            return true;
+        }
+
+        if (diskDirectory != null) {
+            cached = readFromDisk(generator, diskDirectory.resolve(sKey + FILE_EXTENSION));
+            if (cached != null) {
+                synchronized (m_lock) {
+                    m_nCountDiskHits++;
+                    putToMemory(sKey, cached);
+                }
+                generator.loadPixelMap(copyGrid(generator, cached));
+                return true;
+            }
+        }
+
+        synchronized (m_lock) {
+            m_nCountMisses++;
+        }
+        if (!generator.generate()) {
+            return false;
+        }
+        synchronized (m_lock) {
+            putToMemory(sKey, copyGrid(generator, generator.getPixelMapGrid()));
+        }
+        if (diskDirectory != null) {
+            writeToDisk(generator, diskDirectory, sKey);
+        }
+        return true;
+    }
+
+    public long getCountMemoryHits() {
+        synchronized (m_lock) {
+            return m_nCountMemoryHits;
+        }
+    }
+
+    public long getCountDiskHits() {
+        synchronized (m_lock) {
+            return m_nCountDiskHits;
+        }
+    }
+
+    // calls which had to run generate()
+    public long getCountMisses() {
+        synchronized (m_lock) {
+            return m_nCountMisses;
+        }
+    }
+
+    // maps dropped from the memory tier (they are still on disk if it is set)
+    public long getCountEvictions() {
+        synchronized (m_lock) {
+            return m_nCountEvictions;
+        }
+    }
+
+    // share of calls served by memory or disk, 0 if there were no calls
+    public double getHitRatio() {
+        synchronized (m_lock) {
+            long nHits = m_nCountMemoryHits + m_nCountDiskHits;
+            long nCalls = nHits + m_nCountMisses;
+            return nCalls == 0 ? 0.0 : (double) nHits / nCalls;
+        }
+    }
+
+    // packed maps in the memory tier
+    public long getMemoryBytes() {
+        synchronized (m_lock) {
+            return m_nMemoryBytes;
+        }
+    }
+
+    // files of the disk tier (including the ones found in the directory)
+    public long getDiskBytes() {
+        synchronized (m_lock) {
+            return m_nDiskBytes;
+        }
+    }
+
+    public int getCountMemoryMaps() {
+        synchronized (m_lock) {
+            return m_memory.size();
+        }
+    }
+
+    // memory tier only, files on disk are kept
+    public void clearMemory() {
+        synchronized (m_lock) {
+            m_memory.clear();
+            m_nMemoryBytes = 0;
+        }
+    }
+
+    // guarded by m_lock
+    private void putToMemory(String sKey, Roads2DGenerator.Roads2DGeneratorBitGrid grid) {
+        long nBytes = getBytes(grid);
+        if (nBytes > m_nMaxMemoryBytes) {
+            return;
+        }
+        Roads2DGenerator.Roads2DGeneratorBitGrid old = m_memory.put(sKey, grid);
+        if (old != null) {
+            m_nMemoryBytes -= getBytes(old);
+        }
+        m_nMemoryBytes += nBytes;
+        evictOverLimit();
+    }
+
+    // guarded by m_lock
+    private void evictOverLimit() {
+        Iterator<Map.Entry<String, Roads2DGenerator.Roads2DGeneratorBitGrid>> it = m_memory.entrySet().iterator();
+        while (m_nMemoryBytes > m_nMaxMemoryBytes && it.hasNext()) {
+            m_nMemoryBytes -= getBytes(it.next().getValue());
+            it.remove();
+            m_nCountEvictions++;
+        }
+    }
+
+    private static long getBytes(Roads2DGenerator.Roads2DGeneratorBitGrid grid) {
+        return (long) grid.getWordsPerRow() * grid.getHeight() * 8;
+    }
+
+    private static Roads2DGenerator.Roads2DGeneratorBitGrid copyGrid(Roads2DGenerator generator, Roads2DGenerator.Roads2DGeneratorBitGrid grid) {
+        Roads2DGenerator.Roads2DGeneratorBitGrid copy = generator.new Roads2DGeneratorBitGrid(grid.getWidth(), grid.getHeight());
+        copy.orGrid(grid, 0, 0);
+        return copy;
+    }
+
+    // null if there is no file or it does not belong to the config of the generator
+    private Roads2DGenerator.Roads2DGeneratorBitGrid readFromDisk(Roads2DGenerator generator, Path path) {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        Roads2DGenerator.Roads2DGeneratorConfig config = generator.getConfig();
+        try (Roads2DGeneratorBinaryMap.Roads2DGeneratorBinaryMapReader reader = Roads2DGeneratorBinaryMap.open(path.toString())) {
+            if (reader.getWidth() != config.getWidth() || reader.getHeight() != config.getHeight()
+                || reader.getSeed() != config.getSeedInitRandom()
+                || Float.floatToIntBits(reader.getDensity()) != Float.floatToIntBits(config.getDensity())) {
+                m_sErrorMessage = "Roads2DGeneratorResultCache::generate(), " + path + " does not match the config";
+                System.err.println(m_sErrorMessage);
+                return null;
+            }
+            Roads2DGenerator.Roads2DGeneratorBitGrid grid = generator.new Roads2DGeneratorBitGrid(reader.getWidth(), reader.getHeight());
+            long[] vRow = new long[grid.getWordsPerRow()];
+            for (int y = 0; y < grid.getHeight(); y++) {
+                reader.readRow(y, vRow);
+                for (int w = 0; w < vRow.length; w++) {
+                    grid.setWord(w, y, vRow[w]);
+                }
+            }
+            return grid;
+        } catch (IOException e) {
+            m_sErrorMessage = "Roads2DGeneratorResultCache::generate(), " + e.getMessage();
+            System.err.println(m_sErrorMessage);
+            return null;
+        }
+    }
+
+    // written to a temporary file and moved, so other processes never see a part of the map
+    private void writeToDisk(Roads2DGenerator generator, Path directory, String sKey) {
+        Path path = directory.resolve(sKey + FILE_EXTENSION);
+        Path tmp = directory.resolve(sKey + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            Roads2DGeneratorBinaryMap.write(generator, tmp.toString(), true);
+            long nOldSize = Files.isRegularFile(path) ? Files.size(path) : 0;
+            long nSize = Files.size(tmp);
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            synchronized (m_lock) {
+                if (directory.equals(m_diskDirectory)) {
+                    m_nDiskBytes += nSize - nOldSize;
+                }
+            }
+        } catch (IOException e) {
+            m_sErrorMessage = "Roads2DGeneratorResultCache::generate(), " + e.getMessage();
+            System.err.println(m_sErrorMessage);
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException eDelete) {
+                // nothing to do, the temporary file is not a cached map
+            }
+        }
+    }
+}
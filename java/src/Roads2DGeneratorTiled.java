@@ -0,0 +1,181 @@
+/*
+MIT License
+
+Copyright (c) 2021-2025 Evgenii Sopov (mrseakg@gmail.com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+// original source-code: https://github.com/sea5kg/Roads2DGenerator
+
+package src;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Roads2DGeneratorTiled - generates a big map as tiles in parallel and stitches seams between them.
+// Every tile is a usual Roads2DGenerator with a seed derived from the world seed, tile position and attempt,
+// tiles are placed and stitched in a fixed order, so the result does not depend on the count of threads.
+public class Roads2DGeneratorTiled {
+    private final Roads2DGenerator m_world;
+    private int m_nTileWidth;
+    private int m_nTileHeight;
+    private int m_nMaxTileAttempts;
+    private ForkJoinPool m_pool;
+    private String m_sErrorMessage;
+
+    public Roads2DGeneratorTiled() {
+        m_world = new Roads2DGenerator();
+        m_nTileWidth = 256;
+        m_nTileHeight = 256;
+        m_nMaxTileAttempts = 8;
+        m_pool = ForkJoinPool.commonPool();
+        m_sErrorMessage = "";
+    }
+
+    // config of the whole map: width, height, density, seed, presets
+    public Roads2DGenerator.Roads2DGeneratorConfig getConfig() {
+        return m_world.getConfig();
+    }
+
+    // tiles are not smaller than this size, the rest of the width / height is spread over the tiles
+    public Roads2DGeneratorTiled setTileSize(int nTileWidth, int nTileHeight) {
+        m_nTileWidth = Math.max(nTileWidth, 4);
+        m_nTileHeight = Math.max(nTileHeight, 4);
+        return this;
+    }
+
+    // every attempt of a tile uses the next derived seed
+    public Roads2DGeneratorTiled setMaxTileAttempts(int nMaxTileAttempts) {
+        m_nMaxTileAttempts = Math.max(nMaxTileAttempts, 1);
+        return this;
+    }
+
+    public Roads2DGeneratorTiled setPool(ForkJoinPool pool) {
+        m_pool = pool;
+        return this;
+    }
+
+    public String getErrorMessage() {
+        return m_sErrorMessage;
+    }
+
+    // generator with the stitched map, use it for export
+    public Roads2DGenerator getGenerator() {
+        return m_world;
+    }
+
+    public boolean generate() {
+        m_sErrorMessage = "";
+        Roads2DGenerator.Roads2DGeneratorConfig config = m_world.getConfig();
+        int[] vTileXs = splitRange(config.getWidth(), m_nTileWidth);
+        int[] vTileYs = splitRange(config.getHeight(), m_nTileHeight);
+        int nTilesX = vTileXs.length - 1;
+        int nTilesY = vTileYs.length - 1;
+
+        List<Callable<Roads2DGenerator>> vTasks = new ArrayList<>();
+        for (int ty = 0; ty < nTilesY; ty++) {
+            for (int tx = 0; tx < nTilesX; tx++) {
+                final int nTileX = tx;
+                final int nTileY = ty;
+                final int x0 = vTileXs[tx];
+                final int y0 = vTileYs[ty];
+                final int nWidth = vTileXs[tx + 1] - x0;
+                final int nHeight = vTileYs[ty + 1] - y0;
+                vTasks.add(() -> generateTile(nTileX, nTileY, x0, y0, nWidth, nHeight));
+            }
+        }
+
+        List<Roads2DGenerator.Roads2DGeneratorBitGrid> vTileMaps = new ArrayList<>();
+        try {
+            List<Future<Roads2DGenerator>> vFutures = m_pool.invokeAll(vTasks);
+            for (int i = 0; i < vFutures.size(); i++) {
+                Roads2DGenerator tile = vFutures.get(i).get();
+                if (tile == null) {
+                    m_sErrorMessage = "Roads2DGeneratorTiled::generate(), could not generate tile "
+                        + (i % nTilesX) + "x" + (i / nTilesX) + " in " + m_nMaxTileAttempts + " attempts";
+                    System.err.println(m_sErrorMessage);
+                    return false;
+                }
+                vTileMaps.add(tile.getPixelMapGrid());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            m_sErrorMessage = "Roads2DGeneratorTiled::generate(), interrupted";
+            return false;
+        } catch (ExecutionException e) {
+            m_sErrorMessage = "Roads2DGeneratorTiled::generate(), " + e.getCause();
+            System.err.println(m_sErrorMessage);
+            return false;
+        }
+
+        if (!m_world.stitchTiles(vTileXs, vTileYs, vTileMaps)) {
+            m_sErrorMessage = m_world.getErrorMessage();
+            return false;
+        }
+        return true;
+    }
+
+    // the same for any JVM and any count of threads, see Roads2DGenerator.deriveSeed()
+    public static int deriveTileSeed(int nWorldSeed, int nTileX, int nTileY, int nAttempt) {
+        return Roads2DGenerator.deriveSeed(nWorldSeed, nTileX, nTileY, nAttempt);
+    }
+
+    // null if all attempts failed
+    private Roads2DGenerator generateTile(int nTileX, int nTileY, int x0, int y0, int nWidth, int nHeight) {
+        Roads2DGenerator.Roads2DGeneratorConfig world = m_world.getConfig();
+        Roads2DGenerator tile = new Roads2DGenerator();
+        Roads2DGenerator.Roads2DGeneratorConfig config = tile.getConfig();
+        // everything of the world (modes, tries set by user) except size, seed and presets
+        config
+            .copyFrom(world)
+            .setWidth(nWidth)
+            .setHeight(nHeight)
+            .clearPresets()
+        ;
+        // presets of the world in coordinates of the tile
+        for (Roads2DGenerator.Roads2DGeneratorRect rect : world.getPresetRects()) {
+            config.setPresetExcludes(rect.getXStart() - x0, rect.getYStart() - y0, rect.getXEnd() - x0, rect.getYEnd() - y0);
+        }
+        for (Roads2DGenerator.Roads2DGeneratorPresetMask mask : world.getPresetMasks()) {
+            config.setPresetExcludesMask(mask.getMask(), mask.getXOffset() - x0, mask.getYOffset() - y0);
+        }
+        for (int nAttempt = 0; nAttempt < m_nMaxTileAttempts; nAttempt++) {
+            config.setSeedInitRandom(deriveTileSeed(world.getSeedInitRandom(), nTileX, nTileY, nAttempt));
+            if (tile.generate()) {
+                return tile;
+            }
+        }
+        return null;
+    }
+
+    // borders of parts not smaller than nPart (if the whole is big enough), first is 0, last is nWhole
+    private static int[] splitRange(int nWhole, int nPart) {
+        int nCount = Math.max(nWhole / nPart, 1);
+        int[] vBorders = new int[nCount + 1];
+        for (int i = 0; i <= nCount; i++) {
+            vBorders[i] = (int)((long)nWhole * i / nCount);
+        }
+        return vBorders;
+    }
+}
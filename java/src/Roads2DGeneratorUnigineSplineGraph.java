@@ -0,0 +1,314 @@
+/*
+MIT License
+
+Copyright (c) 2021-2025 Evgenii Sopov (mrseakg@gmail.com)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+// original source-code: https://github.com/sea5kg/Roads2DGenerator
+
+package src;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+// documentation here:
+// https://developer.unigine.com/en/docs/2.16.1/code/formats/spline_format?rlang=cpp
+
+// Roads2DGeneratorUnigineSplineGraph - port of the c++ exporter, but spline points are only junctions, corners
+// and dead ends: a straight run of cells between them is one segment. Points are found by masks over the packed
+// rows, segments go right and down from every point, tangents are computed from sums of neighbours collected
+// in one pass over segments (the c++ version searches all segments for every end).
+public class Roads2DGeneratorUnigineSplineGraph {
+    private final Roads2DGenerator m_generator;
+    private final float[] m_vPointsX;
+    private final float[] m_vPointsY;
+    private final float[] m_vPointsZ;
+    private final int[] m_vSegmentsStart;
+    private final int[] m_vSegmentsEnd;
+    private final float[] m_vTangents; // start x, y, z, end x, y, z for every segment
+    private String m_sErrorMessage;
+
+    public Roads2DGeneratorUnigineSplineGraph(Roads2DGenerator generator) {
+        m_generator = generator;
+        m_sErrorMessage = "";
+        Roads2DGenerator.Roads2DGeneratorBitGrid grid = generator.getPixelMapGrid();
+        int nWidth = grid.getWidth();
+        int nWordsPerRow = grid.getWordsPerRow();
+        int nHeight = grid.getHeight();
+
+        // points: road cells with a neighbour, which are not in the middle of a straight horizontal or vertical run
+        long[] vPointWords = new long[nWordsPerRow * nHeight];
+        int[] vWordRanks = new int[vPointWords.length];
+        int nPoints = 0;
+        int nSegments = 0;
+        for (int y = 0; y < nHeight; y++) {
+            for (int w = 0; w < nWordsPerRow; w++) {
+                long word = grid.getWord(w, y);
+                long prev = w > 0 ? grid.getWord(w - 1, y) : 0L;
+                long next = w + 1 < nWordsPerRow ? grid.getWord(w + 1, y) : 0L;
+                long left = (word << 1) | (prev >>> 63);
+                long right = (word >>> 1) | (next << 63);
+                long up = y > 0 ? grid.getWord(w, y - 1) : 0L;
+                long down = y + 1 < nHeight ? grid.getWord(w, y + 1) : 0L;
+                long horizontal = left & right & ~up & ~down;
+                long vertical = up & down & ~left & ~right;
+                long points = word & (left | right | up | down) & ~horizontal & ~vertical;
+                int idx = y * nWordsPerRow + w;
+                vPointWords[idx] = points;
+                vWordRanks[idx] = nPoints;
+                nPoints += Long.bitCount(points);
+                nSegments += Long.bitCount(points & right) + Long.bitCount(points & down);
+            }
+        }
+
+        m_vPointsX = new float[nPoints];
+        m_vPointsY = new float[nPoints];
+        m_vPointsZ = new float[nPoints];
+        m_vSegmentsStart = new int[nSegments];
+        m_vSegmentsEnd = new int[nSegments];
+        m_vTangents = new float[nSegments * 6];
+
+        // a run to the right ends at the next point of the row, a run down at the first point below
+        int nPoint = 0;
+        int nSegment = 0;
+        for (int y = 0; y < nHeight; y++) {
+            for (int w = 0; w < nWordsPerRow; w++) {
+                long points = vPointWords[y * nWordsPerRow + w];
+                while (points != 0) {
+                    int x = (w << 6) + Long.numberOfTrailingZeros(points);
+                    points &= points - 1;
+                    m_vPointsX[nPoint] = x;
+                    m_vPointsY[nPoint] = y;
+                    if (x + 1 < nWidth && grid.get(x + 1, y)) {
+                        int x1 = nextPointInRow(vPointWords, nWordsPerRow, x + 1, y);
+                        m_vSegmentsStart[nSegment] = nPoint;
+                        m_vSegmentsEnd[nSegment] = getPointIndex(vPointWords, vWordRanks, nWordsPerRow, x1, y);
+                        nSegment++;
+                    }
+                    if (y + 1 < nHeight && grid.get(x, y + 1)) {
+                        int y1 = y + 1;
+                        while (!isPoint(vPointWords, nWordsPerRow, x, y1)) {
+                            y1++;
+                        }
+                        m_vSegmentsStart[nSegment] = nPoint;
+                        m_vSegmentsEnd[nSegment] = getPointIndex(vPointWords, vWordRanks, nWordsPerRow, x, y1);
+                        nSegment++;
+                    }
+                    nPoint++;
+                }
+            }
+        }
+        updateTangents();
+    }
+
+    public int getPointsCount() {
+        return m_vPointsX.length;
+    }
+
+    public int getSegmentsCount() {
+        return m_vSegmentsStart.length;
+    }
+
+    public String getErrorMessage() {
+        return m_sErrorMessage;
+    }
+
+    // the seed is taken from the current time like in the c++ version
+    public void modifyRandom(float fluctuationX, float fluctuationY, float fluctuationZ) {
+        modifyRandom(fluctuationX, fluctuationY, fluctuationZ, (int)(System.currentTimeMillis() / 1000));
+    }
+
+    // every point is moved by up to a half of the fluctuation in each direction, the same seed gives the same points
+    public void modifyRandom(float fluctuationX, float fluctuationY, float fluctuationZ, int nSeed) {
+        fluctuationX = Math.abs(fluctuationX);
+        fluctuationY = Math.abs(fluctuationY);
+        fluctuationZ = Math.abs(fluctuationZ);
+        int nX = (int)(fluctuationX * 1000);
+        int nY = (int)(fluctuationY * 1000);
+        int nZ = (int)(fluctuationZ * 1000);
+        fluctuationX = fluctuationX / 2;
+        fluctuationY = fluctuationY / 2;
+        fluctuationZ = fluctuationZ / 2;
+        Roads2DGenerator.Roads2DGeneratorPseudoRandom random = m_generator.new Roads2DGeneratorPseudoRandom();
+        random.setInitSeed(nSeed);
+        for (int i = 0; i < m_vPointsX.length; i++) {
+            m_vPointsX[i] += getFluctuation(random.getNextRandom(), nX, fluctuationX);
+            m_vPointsY[i] += getFluctuation(random.getNextRandom(), nY, fluctuationY);
+            m_vPointsZ[i] += getFluctuation(random.getNextRandom(), nZ, fluctuationZ);
+        }
+        updateTangents();
+    }
+
+    public void modifyScale(float scale) {
+        for (int i = 0; i < m_vPointsX.length; i++) {
+            m_vPointsX[i] = m_vPointsX[i] * scale;
+            m_vPointsY[i] = m_vPointsY[i] * scale;
+            m_vPointsZ[i] = m_vPointsZ[i] * scale;
+        }
+        updateTangents();
+    }
+
+    public boolean exportToSPLFile(String sFilepath) {
+        try (Writer writer = new BufferedWriter(Files.newBufferedWriter(Paths.get(sFilepath), StandardCharsets.US_ASCII), 1 << 16)) {
+            exportToSPL(writer);
+            return true;
+        } catch (IOException e) {
+            m_sErrorMessage = "File write error: " + e.getMessage();
+            System.err.println(m_sErrorMessage);
+            return false;
+        }
+    }
+
+    // the layout of the c++ version (without its trailing commas after "end_tangent"), the writer is not closed
+    public void exportToSPL(Writer writer) throws IOException {
+        StringBuilder sb = new StringBuilder(512);
+        writer.write("{\n\t\"points\": [");
+        for (int i = 0; i < m_vPointsX.length; i++) {
+            sb.setLength(0);
+            sb.append(i == 0 ? "\n\t\t[\n" : ", [\n");
+            appendNumber(sb.append("\t\t\t"), m_vPointsX[i]).append(",\n");
+            appendNumber(sb.append("\t\t\t"), m_vPointsY[i]).append(",\n");
+            appendNumber(sb.append("\t\t\t"), m_vPointsZ[i]).append("\n\t\t]");
+            writer.append(sb);
+        }
+        writer.write(m_vPointsX.length > 0 ? "\n\t],\n" : "],\n");
+        writer.write("\t\"segments\": [");
+        for (int i = 0; i < m_vSegmentsStart.length; i++) {
+            sb.setLength(0);
+            sb.append(i == 0 ? "\n\t\t{\n" : ", {\n");
+            sb.append("\t\t\t\"start_index\": ").append(m_vSegmentsStart[i]).append(",\n");
+            sb.append("\t\t\t\"end_index\": ").append(m_vSegmentsEnd[i]).append(",\n");
+            sb.append(SPL_UP_VECTORS);
+            appendVector(sb.append("\t\t\t\"start_tangent\": "), m_vTangents, i * 6).append(",\n");
+            appendVector(sb.append("\t\t\t\"end_tangent\": "), m_vTangents, i * 6 + 3).append("\n\t\t}");
+            writer.append(sb);
+        }
+        writer.write(m_vSegmentsStart.length > 0 ? "\n\t]\n}\n" : "]\n}\n");
+        writer.flush();
+    }
+
+    private static final String SPL_UP_VECTORS =
+        "\t\t\t\"start_up\": [\n\t\t\t\t0,\n\t\t\t\t0,\n\t\t\t\t1\n\t\t\t],\n"
+        + "\t\t\t\"end_up\": [\n\t\t\t\t0,\n\t\t\t\t0,\n\t\t\t\t1\n\t\t\t],\n";
+
+    private static StringBuilder appendVector(StringBuilder sb, float[] vValues, int nOffset) {
+        sb.append("[\n");
+        appendNumber(sb.append("\t\t\t\t"), vValues[nOffset]).append(",\n");
+        appendNumber(sb.append("\t\t\t\t"), vValues[nOffset + 1]).append(",\n");
+        appendNumber(sb.append("\t\t\t\t"), vValues[nOffset + 2]).append("\n\t\t\t]");
+        return sb;
+    }
+
+    // 6 significant digits without exponent, like the default c++ stream output
+    private static StringBuilder appendNumber(StringBuilder sb, float value) {
+        if (value == (int)value) {
+            return sb.append((int)value);
+        }
+        return sb.append(new BigDecimal(value).round(SPL_NUMBER_PRECISION).stripTrailingZeros().toPlainString());
+    }
+
+    private static final MathContext SPL_NUMBER_PRECISION = new MathContext(6);
+
+    private static float getFluctuation(int nRandom, int nRange, float fluctuation) {
+        if (nRange == 0) {
+            return 0.0f; // the c++ version divides by zero here
+        }
+        return (float)(nRandom % nRange) / 1000.0f - fluctuation;
+    }
+
+    // Tangents of the c++ version: the mean vector to the neighbours of the end turned by 90 degrees to the side
+    // of the other end, or half of the segment for the middle of a line or a cross.
+    // Sums of neighbours are collected in one pass over segments, so every update is linear.
+    private void updateTangents() {
+        int nPoints = m_vPointsX.length;
+        float[] vSumX = new float[nPoints];
+        float[] vSumY = new float[nPoints];
+        float[] vSumZ = new float[nPoints];
+        int[] vCount = new int[nPoints];
+        for (int i = 0; i < m_vSegmentsStart.length; i++) {
+            int a = m_vSegmentsStart[i];
+            int b = m_vSegmentsEnd[i];
+            vSumX[a] += m_vPointsX[b] - m_vPointsX[a];
+            vSumY[a] += m_vPointsY[b] - m_vPointsY[a];
+            vSumZ[a] += m_vPointsZ[b] - m_vPointsZ[a];
+            vCount[a]++;
+            vSumX[b] += m_vPointsX[a] - m_vPointsX[b];
+            vSumY[b] += m_vPointsY[a] - m_vPointsY[b];
+            vSumZ[b] += m_vPointsZ[a] - m_vPointsZ[b];
+            vCount[b]++;
+        }
+        for (int i = 0; i < m_vSegmentsStart.length; i++) {
+            int a = m_vSegmentsStart[i];
+            int b = m_vSegmentsEnd[i];
+            calculateTangent(a, b, vSumX[a], vSumY[a], vSumZ[a], vCount[a], i * 6);
+            calculateTangent(b, a, vSumX[b], vSumY[b], vSumZ[b], vCount[b], i * 6 + 3);
+        }
+    }
+
+    private void calculateTangent(int nPoint1, int nPoint2, float x, float y, float z, int nCount, int nOffset) {
+        float vecX = m_vPointsX[nPoint2] - m_vPointsX[nPoint1];
+        float vecY = m_vPointsY[nPoint2] - m_vPointsY[nPoint1];
+        float vecZ = m_vPointsZ[nPoint2] - m_vPointsZ[nPoint1];
+        if (nCount > 0) {
+            x = x / nCount;
+            y = y / nCount;
+            z = z / nCount;
+        }
+        float length = (float)Math.sqrt(x * x + y * y + z * z);
+        if (length < 0.2f && (nCount == 2 || nCount == 4)) { // line or cross
+            m_vTangents[nOffset] = vecX / 2.0f;
+            m_vTangents[nOffset + 1] = vecY / 2.0f;
+            m_vTangents[nOffset + 2] = vecZ / 2.0f;
+            return;
+        }
+        float sign = x * vecY - y * vecX < 0 ? -1.0f : 1.0f;
+        // turned around z by sign * 90 degrees
+        m_vTangents[nOffset] = -sign * y / 2.0f;
+        m_vTangents[nOffset + 1] = sign * x / 2.0f;
+        m_vTangents[nOffset + 2] = z / 2.0f;
+    }
+
+    private static boolean isPoint(long[] vPointWords, int nWordsPerRow, int x, int y) {
+        return ((vPointWords[y * nWordsPerRow + (x >>> 6)] >>> x) & 1L) != 0;
+    }
+
+    // first point in the row from x (inclusive), there is always one: a run ends at a point
+    private static int nextPointInRow(long[] vPointWords, int nWordsPerRow, int x, int y) {
+        int w = x >>> 6;
+        long word = vPointWords[y * nWordsPerRow + w] & (-1L << x);
+        while (word == 0) {
+            w++;
+            word = vPointWords[y * nWordsPerRow + w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    private static int getPointIndex(long[] vPointWords, int[] vWordRanks, int nWordsPerRow, int x, int y) {
+        int idx = y * nWordsPerRow + (x >>> 6);
+        return vWordRanks[idx] + Long.bitCount(vPointWords[idx] & ((1L << x) - 1));
+    }
+}